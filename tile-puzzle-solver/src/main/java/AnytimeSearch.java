@@ -0,0 +1,358 @@
+/********************************************************************************
+//*******************************************************************************
+//Class:        AnytimeSearch
+//Description:  This is the weighted and anytime A* mode of the tile puzzle
+//              solver. Weighted A* orders boards by g + w * h, which finds a
+//              solution much sooner, and that solution is at most w times as
+//              long as the optimal one.
+//
+//              The anytime mode works like ARA*. It starts at a high weight and
+//              lowers it after each solution, down to 1 (plain A*). Each round
+//              reuses the g-values of the earlier rounds. It only reopens
+//              boards whose g-value went down after they were expanded (the
+//              inconsistent list). Every better solution is reported with the
+//              bound proven for it: the solution length over the lowest g + h
+//              still open. The search stops at an optimal solution or at the
+//              deadline, whichever comes first.
+**/
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.PriorityQueue;
+
+public class AnytimeSearch {
+
+    // <editor-fold defaultstate="collapsed" desc="Global Variables">
+    static final double WEIGHT_STEP = 0.5;//How much the anytime mode lowers the weight per round
+    private static final int CLOCK_INTERVAL = 1024;//Expansions between deadline checks
+
+    private final PuzzleSolver solver;//The engine that receives the results
+    private final boolean anytime;//true=lower the weight after each solution
+    private final long deadline;//System.nanoTime() to stop at (0=none)
+    private final long startTime;//System.nanoTime() the search started at
+    private final HashMap<PuzzleBoard, Node> nodes = new HashMap<>();//Every board reached, with its best g-value
+    private PriorityQueue<Entry> open = new PriorityQueue<>();//Boards to expand at the current weight
+    private ArrayList<Node> inconsistent = new ArrayList<>();//Expanded boards whose g-value went down since
+    private PuzzleBoard probeBoard;//Scratch board for trying moves before copying
+    private double weight;//The current heuristic weight
+    private int round;//The current round (boards expanded in it are closed)
+    private Node goal;//The goal node once reached
+    private int bestLength = Integer.MAX_VALUE;//Length of the best solution reported
+    private ArrayList<PuzzleBoard> bestPath;//Copy of the best solution reported
+    private boolean stopped;//Set at the deadline or the memory budget
+    // </editor-fold>
+
+/*******************************************************************************
+//Interface:    SolutionListener
+//Description:  Receives the solutions of the weighted and anytime modes as
+//              they improve, with the weight they were found at and the
+//              suboptimality bound proven for them.
+**/
+    interface SolutionListener {
+
+        void solutionImproved(int length, double foundWeight, double bound);
+    }
+
+/*******************************************************************************
+//Method:       AnytimeSearch
+//Description:  Sets up a weighted or anytime search for an engine's start
+//              state.
+//Parameters:   givenSolver     the engine holding the start state and settings
+//              givenAnytime    true=keep improving until optimal or the deadline
+//Returns:      Nothing
+//Calls:        Nothing
+//Globals:      solver
+//              anytime
+//              deadline
+//              startTime
+//              weight
+**/
+    AnytimeSearch(PuzzleSolver givenSolver, boolean givenAnytime) {
+        solver = givenSolver;
+        anytime = givenAnytime;
+        weight = Math.max(1.0, givenSolver.weight);
+        startTime = System.nanoTime();
+        deadline = givenSolver.deadlineMillis > 0 ? startTime + givenSolver.deadlineMillis * 1000000L : 0;
+    }
+
+/*******************************************************************************
+//Method:       search
+//Description:  Runs rounds of weighted A* until the weight reaches 1, the
+//              deadline passes or (for plain weighted A*) after one round, and
+//              hands the best solution to the engine.
+//Parameters:   None
+//Returns:      Nothing
+//Calls:        improvePath
+//              reportSolution
+//              startNextRound
+//Globals:      solver
+//              weight
+//              bestPath
+**/
+    void search() {
+        solver.suboptimalityBound = Double.POSITIVE_INFINITY;
+        PuzzleBoard startBoard = solver.gameBoard.deepCopy();
+        startBoard.lastDirection = -1;
+        probeBoard = startBoard.deepCopy();
+        Node start = new Node(startBoard, PuzzleHeuristics.estimate(startBoard, solver.heuristicMode));
+        start.g = 0;
+        nodes.put(startBoard, start);
+        insertOpen(start);
+        while (true) {
+            solver.iterationsRun++;
+            improvePath();
+            if (stopped) {
+                break;
+            }
+            reportSolution();
+            if (!anytime || weight == 1.0 || solver.suboptimalityBound == 1.0) {
+                break;
+            }
+            startNextRound();
+        }
+        if (bestPath == null) {
+            if (solver.budgetExceeded) {
+                solver.printProgress("Stopped: the search went over its memory budget");
+            } else {
+                solver.deadlineReached = true;
+                solver.printProgress("Stopped: no solution was found before the deadline");
+            }
+            return;
+        }
+        solver.deadlineReached = stopped && !solver.budgetExceeded;
+        solver.solutionPath.addAll(bestPath);
+    }
+
+/*******************************************************************************
+//Method:       improvePath
+//Description:  Expands boards in order of g + w * h until the goal's g-value
+//              is no larger than the best key left open. Boards whose g-value
+//              goes down after they were expanded this round wait in the
+//              inconsistent list for the next round.
+//Parameters:   None
+//Returns:      Nothing
+//Calls:        insertOpen
+//Globals:      open
+//              inconsistent
+//              nodes
+//              goal
+//              stopped
+**/
+    private void improvePath() {
+        while (!open.isEmpty()) {
+            Entry entry = open.peek();
+            if (!entry.node.inOpen || entry.key != key(entry.node)) {
+                open.poll();
+                continue;
+            }
+            if (goal != null && goal.g <= entry.key) {
+                return;
+            }
+            if (isOutOfTime()) {
+                return;
+            }
+            open.poll();
+            Node node = entry.node;
+            node.inOpen = false;
+            node.closedRound = round;
+            if (node.board.equals(solver.goalBoard)) {
+                goal = node;
+                continue;
+            }
+            solver.nodesExpanded++;
+            for (int directionToMove = 0; directionToMove < 4; directionToMove++) {
+                if (!node.board.canMove(directionToMove)
+                        || directionToMove == PuzzleSolver.oppositeDirection(node.board.lastDirection)) {
+                    continue;
+                }
+                probeBoard.copyFrom(node.board);
+                probeBoard.moveTile(directionToMove);
+                Node child = nodes.get(probeBoard);
+                if (child == null) {
+                    PuzzleBoard childBoard = probeBoard.deepCopy();
+                    solver.totalBoardsCreated++;
+                    child = new Node(childBoard, PuzzleHeuristics.estimate(childBoard, solver.heuristicMode));
+                    nodes.put(childBoard, child);
+                } else if (child.g <= node.g + 1) {
+                    continue;
+                }
+                child.g = node.g + 1;
+                child.parent = node;
+                child.board.lastDirection = directionToMove;
+                if (child.closedRound == round) {
+                    if (!child.inInconsistent) {
+                        child.inInconsistent = true;
+                        inconsistent.add(child);
+                    }
+                } else {
+                    insertOpen(child);
+                }
+            }
+            solver.peakOpenSize = Math.max(solver.peakOpenSize, open.size());
+        }
+    }
+
+/*******************************************************************************
+//Method:       isOutOfTime
+//Description:  Checks the deadline (every CLOCK_INTERVAL expansions) and the
+//              memory budget.
+//Parameters:   None
+//Returns:      boolean     true=the search must stop
+//Calls:        Nothing
+//Globals:      deadline
+//              nodes
+//              stopped
+**/
+    private boolean isOutOfTime() {
+        if (solver.nodeLimit > 0 && nodes.size() > solver.nodeLimit) {
+            solver.budgetExceeded = true;
+            stopped = true;
+        } else if (deadline != 0 && solver.nodesExpanded % CLOCK_INTERVAL == 0
+                && System.nanoTime() > deadline) {
+            stopped = true;
+        }
+        return stopped;
+    }
+
+/*******************************************************************************
+//Method:       reportSolution
+//Description:  Records the round's solution if it is shorter than the best one
+//              so far, and reports it when it or its proven suboptimality
+//              bound improved. The optimal length is at least the lowest
+//              g + h of any board still open or inconsistent.
+//Parameters:   None
+//Returns:      Nothing
+//Calls:        SolutionListener.solutionImproved
+//Globals:      goal
+//              open
+//              inconsistent
+//              bestLength
+//              bestPath
+**/
+    private void reportSolution() {
+        if (goal == null) {
+            return;
+        }
+        int lowerBound = goal.g;
+        for (Entry entry : open) {
+            if (entry.node.inOpen) {
+                lowerBound = Math.min(lowerBound, entry.node.g + entry.node.h);
+            }
+        }
+        for (Node node : inconsistent) {
+            lowerBound = Math.min(lowerBound, node.g + node.h);
+        }
+        double bound = Math.min(weight, lowerBound > 0 ? (double) goal.g / lowerBound : 1.0);
+        if (goal.g >= bestLength && bound >= solver.suboptimalityBound) {
+            return;
+        }
+        if (goal.g < bestLength) {
+            bestLength = goal.g;
+            bestPath = new ArrayList<>();
+            for (Node node = goal; node != null; node = node.parent) {
+                PuzzleBoard board = node.board.deepCopy();
+                board.depth = node.g;
+                board.rawScore = node.h;
+                board.totalScore = node.g + node.h;
+                bestPath.add(0, board);
+            }
+        }
+        solver.suboptimalityBound = Math.min(solver.suboptimalityBound, bound);
+        solver.printProgress(String.format("Found a %d-move solution at weight %.2f (at most %.3f times optimal)"
+                + " after %d ms", bestLength, weight, solver.suboptimalityBound,
+                (System.nanoTime() - startTime) / 1000000));
+        if (solver.solutionListener != null) {
+            solver.solutionListener.solutionImproved(bestLength, weight, solver.suboptimalityBound);
+        }
+    }
+
+/*******************************************************************************
+//Method:       startNextRound
+//Description:  Lowers the weight and rebuilds open from the boards still open
+//              and the inconsistent ones, keyed by the new weight.
+//Parameters:   None
+//Returns:      Nothing
+//Calls:        insertOpen
+//Globals:      weight
+//              round
+//              open
+//              inconsistent
+**/
+    private void startNextRound() {
+        weight = Math.max(1.0, weight - WEIGHT_STEP);
+        round++;
+        ArrayList<Node> waiting = new ArrayList<>(inconsistent);
+        for (Entry entry : open) {
+            if (entry.node.inOpen) {
+                entry.node.inOpen = false;
+                waiting.add(entry.node);
+            }
+        }
+        open = new PriorityQueue<>(Math.max(16, waiting.size()));
+        inconsistent = new ArrayList<>();
+        for (Node node : waiting) {
+            node.inInconsistent = false;
+            if (!node.inOpen) {
+                insertOpen(node);
+            }
+        }
+    }
+
+    private void insertOpen(Node node) {
+        node.inOpen = true;
+        open.add(new Entry(node, key(node), node.g));
+    }
+
+    private int key(Node node) {
+        return node.g + (int) (weight * node.h);
+    }
+
+/********************************************************************************
+//*******************************************************************************
+//Class:        Node
+//Description:  This class holds a board with its best known path cost.
+**/
+    private static class Node {
+
+        final PuzzleBoard board;
+        final int h;
+        int g = Integer.MAX_VALUE;
+        Node parent;
+        boolean inOpen;
+        boolean inInconsistent;
+        int closedRound = -1;
+
+        Node(PuzzleBoard givenBoard, int givenH) {
+            board = givenBoard;
+            h = givenH;
+        }
+    }
+
+/********************************************************************************
+//*******************************************************************************
+//Class:        Entry
+//Description:  This class is one open list entry. Entries left behind when a
+//              board's key changes are skipped when they reach the front.
+**/
+    private static class Entry implements Comparable<Entry> {
+
+        final Node node;
+        final int key;
+        final int g;
+
+        Entry(Node givenNode, int givenKey, int givenG) {
+            node = givenNode;
+            key = givenKey;
+            g = givenG;
+        }
+
+        @Override
+        public int compareTo(Entry other) {
+            if (key != other.key) {
+                return Integer.compare(key, other.key);
+            }
+            //Deeper boards first on ties, as the other best-first modes do
+            return Integer.compare(other.g, g);
+        }
+    }
+}
@@ -0,0 +1,612 @@
+/********************************************************************************
+//*******************************************************************************
+//Class:        BatchPuzzleSolver
+//Description:  This is the headless batch runner for the tile puzzle solver.
+//              It reads a file of start states, solves each one with the
+//              chosen search mode and heuristic, and writes one CSV row or
+//              JSON line per instance with the solution length, nodes
+//              expanded, peak open and closed sizes, wall time and nodes per
+//              second. The anytime mode first writes a row with the status
+//              improved for each better solution or bound, as of when it
+//              was found. Instances are spread over a pool of worker threads,
+//              each solving with its own PuzzleSolver engine and a per-solve
+//              memory budget.
+//
+//              Each non-empty line of the instance file holds the tiles of
+//              one board in row-major order (0=blank), optionally preceded
+//              by an instance id. The side length comes from the tile count.
+//              Lines starting with # are skipped.
+//
+//              Usage: java BatchPuzzleSolver <instanceFile> [options]
+//                  --search=breadth|best|ida|pida|hda|bidir|table|weighted|anytime|sma|external|frontier|realtime|reduction|epea|ttida
+//                                                  (default ida)
+//                  --heuristic=manhattan|conflict|walking|pdb
+//                                                  (default manhattan)
+//                  --open=heap|bucket              (best-first only)
+//                  --no-depth-penalty              (best-first only)
+//                  --no-move-pruning               tree searches only skip
+//                                                  undoing the last move
+//                  --weight=<w>                    weighted/anytime start
+//                                                  weight (default 2)
+//                  --deadline=<ms>                 weighted/anytime/realtime
+//                                                  time limit (default none)
+//                  --lookahead=<d>                 realtime moves looked
+//                                                  ahead per move (default 8)
+//                  --trials=<n>                    realtime trials from the
+//                                                  start state (default 1)
+//                  --format=csv|json               (default csv)
+//                  --output=<file>                 (default stdout)
+//                  --blank-first                   instances use the goal
+//                                                  with the blank first
+//                                                  (e.g. Korf's 100)
+//                  --threads=<n>                   parallel solves
+//                                                  (default: all cores)
+//                  --executor=fixed|virtual        thread pool kind; virtual
+//                                                  needs a Java 21+ runtime
+//                                                  and falls back to fixed
+//                  --cache=<file>                  answer repeated (or
+//                                                  mirrored) boards from a
+//                                                  solution cache log; hits
+//                                                  report status cached
+//                  --memory=<MB>                   heap budget per solve
+//                                                  (default: max heap / n);
+//                                                  sma prunes to stay in it,
+//                                                  external splits it
+//                                                  between its sort and
+//                                                  merge buffers, ttida
+//                                                  grows its transposition
+//                                                  table to a quarter of
+//                                                  it, the others
+//                                                  stop
+**/
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+public class BatchPuzzleSolver {
+
+    // <editor-fold defaultstate="collapsed" desc="Global Variables">
+    private static final String CSV_HEADER = "id,side,search,heuristic,status,solution_length,nodes_expanded,"
+            + "peak_open,closed_size,wall_ms,nodes_per_sec,bound";
+    private static final long BYTES_PER_MEGABYTE = 1024L * 1024L;
+    private static final String[] SEARCH_NAMES = {"", "breadth", "best", "ida", "pida", "hda", "bidir", "table",
+        "weighted", "anytime", "sma", "external", "frontier", "realtime", "reduction", "epea", "ttida"};//Names by search mode
+
+    private int searchMode = 3;//1=breadth-first; 2=best-first; 3=IDA*; 4=parallel IDA*; 5=HDA*; 6=bidirectional; 7=8-puzzle table;
+                                        //8=weighted A*; 9=anytime A*; 10=memory-bounded A*;
+                                        //11=external-memory breadth-first; 12=frontier search; 13=real-time;
+                                        //14=reduction (boards past 6x6 always use it); 15=EPEA*;
+                                        //16=IDA* with a transposition table
+    private int heuristicMode = PuzzleHeuristics.MANHATTAN;//Heuristic used by the informed modes
+    private int openListMode = 1;//1=binary heap; 2=bucket queue
+    private boolean useDepthPenalty = true;//Whether best-first adds the depth to the score
+    private boolean useMovePruning = true;//Whether tree searches skip redundant move sequences
+    private double weight = 2.0;//Heuristic weight for weighted and anytime A*
+    private long deadlineMillis;//Time limit for weighted and anytime A* and real-time search (0=none)
+    private int lookaheadDepth = RealTimeSearch.DEFAULT_LOOKAHEAD;//Moves the real-time mode looks ahead per move
+    private int realTimeTrials = 1;//Most trials the real-time mode runs
+    private boolean writeJson;//true=JSON lines; false=CSV
+    private boolean blankFirst;//Whether instances use the blank-first goal
+    private String instanceFile;//The file of start states
+    private String outputFile;//The output file (null=stdout)
+    private String cacheFile;//The solution cache log (null=no cache)
+    private SolutionCache solutionCache;//Optimal solutions shared by the solves
+    private int threadCount = Runtime.getRuntime().availableProcessors();//Parallel solves
+    private boolean useVirtualThreads;//Whether to run each solve on a virtual thread
+    private long memoryBudget;//Heap budget per solve in bytes (0=max heap / threads)
+    // </editor-fold>
+
+    public static void main(String[] args) throws IOException {
+        BatchPuzzleSolver batch = new BatchPuzzleSolver();
+        if (!batch.parseArguments(args)) {
+            System.out.println("Usage: java BatchPuzzleSolver <instanceFile> [--search=breadth|best|ida|pida|hda|bidir|table|weighted|anytime|sma|external|frontier|realtime|reduction|epea|ttida]"
+                    + " [--heuristic=manhattan|conflict|walking|pdb] [--open=heap|bucket]"
+                    + " [--no-depth-penalty] [--no-move-pruning] [--weight=<w>] [--deadline=<ms>] [--lookahead=<d>] [--trials=<n>] [--format=csv|json] [--output=<file>] [--blank-first]"
+                    + " [--threads=<n>] [--executor=fixed|virtual] [--memory=<MB>] [--cache=<file>]");
+            return;
+        }
+        batch.run();
+    }
+
+/*******************************************************************************
+//Method:       parseArguments
+//Description:  Reads the instance file and options from the command line.
+//Parameters:   args        the command line arguments
+//Returns:      boolean     true=valid arguments
+//Calls:        Nothing
+//Globals:      all settings
+**/
+    boolean parseArguments(String[] args) {
+        for (String arg : args) {
+            if (arg.startsWith("--search=")) {
+                searchMode = parseChoice(arg, "breadth", "best", "ida", "pida", "hda", "bidir", "table",
+                        "weighted", "anytime", "sma", "external", "frontier", "realtime", "reduction", "epea", "ttida");
+            } else if (arg.startsWith("--heuristic=")) {
+                heuristicMode = parseChoice(arg, "manhattan", "conflict", "walking", "pdb");
+            } else if (arg.startsWith("--open=")) {
+                openListMode = parseChoice(arg, "heap", "bucket");
+            } else if (arg.startsWith("--format=")) {
+                writeJson = parseChoice(arg, "csv", "json") == 2;
+            } else if (arg.startsWith("--output=")) {
+                outputFile = arg.substring(arg.indexOf('=') + 1);
+            } else if (arg.startsWith("--threads=")) {
+                threadCount = parseNumber(arg);
+            } else if (arg.startsWith("--executor=")) {
+                useVirtualThreads = parseChoice(arg, "fixed", "virtual") == 2;
+            } else if (arg.startsWith("--weight=")) {
+                weight = parseDecimal(arg);
+            } else if (arg.startsWith("--deadline=")) {
+                deadlineMillis = parseNumber(arg);
+            } else if (arg.startsWith("--lookahead=")) {
+                lookaheadDepth = parseNumber(arg);
+            } else if (arg.startsWith("--trials=")) {
+                realTimeTrials = parseNumber(arg);
+            } else if (arg.startsWith("--cache=")) {
+                cacheFile = arg.substring("--cache=".length());
+            } else if (arg.startsWith("--memory=")) {
+                memoryBudget = parseNumber(arg) * BYTES_PER_MEGABYTE;
+            } else if ("--no-depth-penalty".equals(arg)) {
+                useDepthPenalty = false;
+            } else if ("--no-move-pruning".equals(arg)) {
+                useMovePruning = false;
+            } else if ("--blank-first".equals(arg)) {
+                blankFirst = true;
+            } else if (arg.startsWith("--") || instanceFile != null) {
+                return false;
+            } else {
+                instanceFile = arg;
+            }
+        }
+        return instanceFile != null && searchMode > 0 && heuristicMode > 0 && openListMode > 0
+                && threadCount > 0 && memoryBudget >= 0 && weight >= 1.0 && deadlineMillis >= 0
+                && lookaheadDepth > 0 && realTimeTrials > 0;
+    }
+
+/*******************************************************************************
+//Method:       parseNumber
+//Description:  Reads the value of a --name=value option as a number.
+//Parameters:   arg         the option
+//Returns:      int         the number, or -1 if it is not a number
+//Calls:        Nothing
+//Globals:      None
+**/
+    private static int parseNumber(String arg) {
+        try {
+            return Integer.parseInt(arg.substring(arg.indexOf('=') + 1));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+/*******************************************************************************
+//Method:       parseDecimal
+//Description:  Reads the value of a --name=value option as a decimal number.
+//Parameters:   arg         the option
+//Returns:      double      the number, or -1 if it is not a number
+//Calls:        Nothing
+//Globals:      None
+**/
+    private static double parseDecimal(String arg) {
+        try {
+            return Double.parseDouble(arg.substring(arg.indexOf('=') + 1));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+/*******************************************************************************
+//Method:       parseChoice
+//Description:  Turns the value of a --name=value option into its 1-based
+//              position in the allowed values.
+//Parameters:   arg         the option
+//              choices     the allowed values
+//Returns:      int         the 1-based choice, or -1 if not allowed
+//Calls:        Nothing
+//Globals:      None
+**/
+    private static int parseChoice(String arg, String... choices) {
+        String value = arg.substring(arg.indexOf('=') + 1);
+        for (int i = 0; i < choices.length; i++) {
+            if (choices[i].equalsIgnoreCase(value)) {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+
+/*******************************************************************************
+//Method:       run
+//Description:  Solves every instance in the file on the worker pool and writes
+//              one record per instance in file order, followed by a summary
+//              on standard error.
+//Parameters:   None
+//Returns:      Nothing
+//Calls:        readInstances
+//              createExecutor
+//              solve
+//Globals:      instanceFile
+//              outputFile
+//              writeJson
+//              threadCount
+//              memoryBudget
+//              solutionCache
+**/
+    void run() throws IOException {
+        final ArrayList<String> ids = new ArrayList<>();
+        final ArrayList<PuzzleBoard> boards = readInstances(instanceFile, ids);
+        if (memoryBudget == 0) {
+            memoryBudget = Runtime.getRuntime().maxMemory() / threadCount;
+        }
+        if (cacheFile != null) {
+            solutionCache = SolutionCache.open(new File(cacheFile), SolutionCache.DEFAULT_CAPACITY);
+        }
+        //Virtual threads start every task at once, so a semaphore caps the solves in flight
+        final Semaphore solveSlots = new Semaphore(threadCount);
+        ExecutorService executor = createExecutor();
+        ArrayList<Future<BatchResult>> futures = new ArrayList<>();
+        for (int i = 0; i < boards.size(); i++) {
+            final int instance = i;
+            futures.add(executor.submit(new Callable<BatchResult>() {
+                @Override
+                public BatchResult call() throws InterruptedException {
+                    solveSlots.acquire();
+                    try {
+                        return solve(ids.get(instance), boards.get(instance));
+                    } finally {
+                        solveSlots.release();
+                    }
+                }
+            }));
+        }
+        executor.shutdown();
+        PrintWriter output = outputFile == null
+                ? new PrintWriter(new OutputStreamWriter(System.out))
+                : new PrintWriter(new FileWriter(outputFile));
+        if (!writeJson) {
+            output.println(CSV_HEADER);
+        }
+        long startTime = System.nanoTime();
+        long totalNodes = 0;
+        for (int i = 0; i < futures.size(); i++) {
+            BatchResult result = waitForResult(futures.get(i), ids.get(i), boards.get(i).sideLength);
+            for (BatchResult improvement : result.improvements) {
+                output.println(writeJson ? improvement.toJson() : improvement.toCsv());
+            }
+            output.println(writeJson ? result.toJson() : result.toCsv());
+            output.flush();
+            totalNodes += result.nodesExpanded;
+        }
+        output.close();
+        long totalTime = System.nanoTime() - startTime;
+        System.err.println("Solved " + boards.size() + " instances on " + threadCount + " threads: "
+                + totalNodes + " nodes in " + totalTime / 1000000 + " ms ("
+                + BatchResult.rate(totalNodes, totalTime) + " nodes/sec)");
+        if (solutionCache != null) {
+            System.err.println(solutionCache.describeStats());
+            solutionCache.close();
+        }
+    }
+
+/*******************************************************************************
+//Method:       createExecutor
+//Description:  Builds the worker pool. Virtual threads are looked up by name
+//              because the project compiles for Java 7; older runtimes fall
+//              back to a fixed pool.
+//Parameters:   None
+//Returns:      ExecutorService     the worker pool
+//Calls:        Nothing
+//Globals:      threadCount
+//              useVirtualThreads
+**/
+    private ExecutorService createExecutor() {
+        if (useVirtualThreads) {
+            try {
+                Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+                return (ExecutorService) factory.invoke(null);
+            } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
+                System.err.println("Virtual threads need Java 21 or newer; using a fixed pool");
+            }
+        }
+        return Executors.newFixedThreadPool(threadCount);
+    }
+
+/*******************************************************************************
+//Method:       waitForResult
+//Description:  Waits for one solve and turns a failed solve into an error row.
+//Parameters:   future      the pending solve
+//              id          the instance id
+//              side        the side length of the instance
+//Returns:      BatchResult the measurements
+//Calls:        Nothing
+//Globals:      None
+**/
+    private static BatchResult waitForResult(Future<BatchResult> future, String id, int side) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return BatchResult.failed(id, side, "interrupted");
+        } catch (ExecutionException e) {
+            return BatchResult.failed(id, side, "error: " + e.getCause());
+        }
+    }
+
+/*******************************************************************************
+//Method:       solve
+//Description:  Solves one instance on its own engine, keeping a row for each
+//              solution the anytime mode improves on the way.
+//Parameters:   id          the instance id
+//              startBoard  the start state
+//Returns:      BatchResult the measurements
+//Calls:        describe
+//              PuzzleSolver.prepareSearch
+//              PuzzleSolver.runSearch
+//Globals:      searchMode
+//              heuristicMode
+//              openListMode
+//              useDepthPenalty
+//              useMovePruning
+//              memoryBudget
+//              solutionCache
+**/
+    BatchResult solve(final String id, final PuzzleBoard startBoard) {
+        final PuzzleSolver solver = new PuzzleSolver(startBoard.deepCopy());
+        solver.showProgress = false;
+        solver.searchMode = searchMode;
+        solver.heuristicMode = heuristicMode;
+        solver.openListMode = openListMode;
+        solver.useDepthPenalty = searchMode != 2 || useDepthPenalty;
+        solver.useMovePruning = useMovePruning;
+        solver.solutionCache = solutionCache;
+        solver.weight = weight;
+        solver.deadlineMillis = deadlineMillis;
+        solver.lookaheadDepth = lookaheadDepth;
+        solver.realTimeTrials = realTimeTrials;
+        solver.setMemoryBudget(memoryBudget);
+        //The parallel modes share the cores with the other solves
+        solver.parallelism = Math.max(1, Runtime.getRuntime().availableProcessors() / threadCount);
+        final long startTime = System.nanoTime();
+        final ArrayList<BatchResult> improvements = new ArrayList<>();
+        if (searchMode == 9) {
+            solver.solutionListener = new AnytimeSearch.SolutionListener() {
+                @Override
+                public void solutionImproved(int length, double foundWeight, double bound) {
+                    BatchResult improvement = describe(id, startBoard, solver, System.nanoTime() - startTime);
+                    improvement.status = "improved";
+                    improvement.solutionLength = length;
+                    improvement.bound = bound;
+                    improvements.add(improvement);
+                }
+            };
+        }
+        solver.prepareSearch();
+        solver.runSearch();
+        BatchResult result = describe(id, startBoard, solver, System.nanoTime() - startTime);
+        result.improvements = improvements;
+        if (solver.solutionPath.isEmpty()) {
+            result.status = solver.budgetExceeded ? "budget_exceeded" : solver.deadlineReached ? "deadline"
+                    : solver.unsolvable ? "unsolvable" : "failed";
+        } else {
+            result.status = solver.cacheHit ? "cached" : solver.deadlineReached ? "best_at_deadline" : "solved";
+            result.bound = solver.suboptimalityBound;
+        }
+        result.solutionLength = solver.solutionPath.size() - 1;
+        return result;
+    }
+
+/*******************************************************************************
+//Method:       describe
+//Description:  Fills a row with an engine's settings and its counts so far.
+//Parameters:   id          the instance id
+//              startBoard  the start state
+//              solver      the engine
+//              wallNanos   the time since the solve started
+//Returns:      BatchResult the row, without a status or solution
+//Calls:        PuzzleSolver.usesHeuristic
+//Globals:      heuristicMode
+**/
+    private BatchResult describe(String id, PuzzleBoard startBoard, PuzzleSolver solver, long wallNanos) {
+        BatchResult result = new BatchResult();
+        result.id = id;
+        result.sideLength = startBoard.sideLength;
+        result.search = SEARCH_NAMES[solver.searchMode];
+        result.heuristic = !solver.usesHeuristic() ? "none" : PuzzleHeuristics.getName(heuristicMode);
+        result.nodesExpanded = solver.nodesExpanded;
+        result.peakOpen = solver.peakOpenSize;
+        //HDA* keeps its closed tables in the workers instead of the engine's closed list
+        result.closedSize = solver.closed.size() + solver.searchClosedSize;
+        result.wallNanos = wallNanos;
+        return result;
+    }
+
+/*******************************************************************************
+//Method:       readInstances
+//Description:  Reads the start states from an instance file.
+//Parameters:   fileName    the instance file
+//              ids         filled with the id of each instance
+//Returns:      ArrayList   the start boards
+//Calls:        parseBoard
+//Globals:      None
+**/
+    ArrayList<PuzzleBoard> readInstances(String fileName, ArrayList<String> ids) throws IOException {
+        ArrayList<PuzzleBoard> boards = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new FileReader(fileName))) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] tokens = line.split("[\\s,]+");
+                int side = (int) Math.sqrt((double) tokens.length);
+                boolean hasId = side * side != tokens.length;
+                if (hasId) {
+                    side = (int) Math.sqrt((double) tokens.length - 1);
+                }
+                if (side * side + (hasId ? 1 : 0) != tokens.length || side < 2 || side > PuzzleBoard.MAX_SIDE) {
+                    throw new IOException("Line " + lineNumber + ": expected a square number of tiles");
+                }
+                ids.add(hasId ? tokens[0] : String.valueOf(boards.size() + 1));
+                boards.add(parseBoard(tokens, hasId ? 1 : 0, side, lineNumber));
+            }
+        }
+        return boards;
+    }
+
+/*******************************************************************************
+//Method:       parseBoard
+//Description:  Builds a board from the tile tokens of one line. Blank-first
+//              instances are turned around (cell i goes to the opposite
+//              cell and tile t becomes cellCount - t), which maps their goal
+//              onto this program's goal without changing solution lengths.
+//Parameters:   tokens      the tokens of the line
+//              first       the index of the first tile token
+//              side        the side length
+//              lineNumber  the line number for error messages
+//Returns:      PuzzleBoard the start board
+//Calls:        Nothing
+//Globals:      blankFirst
+**/
+    private PuzzleBoard parseBoard(String[] tokens, int first, int side, int lineNumber) throws IOException {
+        int cellCount = side * side;
+        PuzzleBoard board = new PuzzleBoard(side);
+        boolean[] used = new boolean[cellCount];
+        for (int cell = 0; cell < cellCount; cell++) {
+            int tile;
+            try {
+                tile = Integer.parseInt(tokens[first + cell]);
+            } catch (NumberFormatException e) {
+                throw new IOException("Line " + lineNumber + ": bad tile " + tokens[first + cell]);
+            }
+            if (tile < 0 || tile >= cellCount || used[tile]) {
+                throw new IOException("Line " + lineNumber + ": tiles must be 0 to " + (cellCount - 1)
+                        + " with no repeats");
+            }
+            used[tile] = true;
+            int targetCell = cell;
+            if (blankFirst) {
+                targetCell = cellCount - 1 - cell;
+                tile = tile == 0 ? 0 : cellCount - tile;
+            }
+            board.setTile(targetCell / side, targetCell % side, tile);
+        }
+        return board;
+    }
+
+/********************************************************************************
+//*******************************************************************************
+//Class:        BatchResult
+//Description:  This class holds the measurements of one solved instance.
+**/
+    static class BatchResult {
+
+        String id;
+        int sideLength;
+        String search;
+        String heuristic;
+        String status;
+        int solutionLength;
+        long nodesExpanded;
+        int peakOpen;
+        int closedSize;
+        long wallNanos;
+        double bound = 1.0;
+        ArrayList<BatchResult> improvements = new ArrayList<>();//Rows written before this one (anytime)
+
+/*******************************************************************************
+//Method:       rate
+//Description:  Computes nodes per second.
+//Parameters:   nodes       the nodes expanded
+//              nanos       the wall time in nanoseconds
+//Returns:      long        the nodes per second
+//Calls:        Nothing
+//Globals:      None
+**/
+        static long rate(long nodes, long nanos) {
+            return nanos == 0 ? 0 : (long) (nodes * 1e9 / nanos);
+        }
+
+        static BatchResult failed(String id, int side, String status) {
+            BatchResult result = new BatchResult();
+            result.id = id;
+            result.sideLength = side;
+            result.search = "";
+            result.heuristic = "";
+            result.status = status.replace(',', ';').replace('"', '\'');
+            result.solutionLength = -1;
+            return result;
+        }
+
+/*******************************************************************************
+//Method:       formatBound
+//Description:  Formats the suboptimality bound (greedy searches have none).
+//Parameters:   none        the text to use when there is no bound
+//Returns:      String      the bound
+//Calls:        Nothing
+//Globals:      bound
+**/
+        String formatBound(String none) {
+            return Double.isInfinite(bound) ? none : String.format(Locale.ROOT, "%.3f", bound);
+        }
+
+/*******************************************************************************
+//Method:       quote
+//Description:  Makes a JSON string, escaping quotes, backslashes and control
+//              characters (instance ids come straight from the file).
+//Parameters:   text        the text
+//Returns:      String      the quoted text
+//Calls:        Nothing
+//Globals:      None
+**/
+        static String quote(String text) {
+            StringBuilder quoted = new StringBuilder(text.length() + 2).append('"');
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (c == '"' || c == '\\') {
+                    quoted.append('\\').append(c);
+                } else if (c < 0x20) {
+                    quoted.append(String.format(Locale.ROOT, "\\u%04x", (int) c));
+                } else {
+                    quoted.append(c);
+                }
+            }
+            return quoted.append('"').toString();
+        }
+
+        String toCsv() {
+            return id + "," + sideLength + "," + search + "," + heuristic + "," + status + ","
+                    + solutionLength + ","
+                    + nodesExpanded + "," + peakOpen + "," + closedSize + ","
+                    + String.format(Locale.ROOT, "%.3f", wallNanos / 1e6) + "," + rate(nodesExpanded, wallNanos)
+                    + "," + formatBound("");
+        }
+
+        String toJson() {
+            return "{\"id\":" + quote(id) + ",\"side\":" + sideLength + ",\"search\":" + quote(search)
+                    + ",\"heuristic\":" + quote(heuristic) + ",\"status\":" + quote(status)
+                    + ",\"solution_length\":" + solutionLength
+                    + ",\"nodes_expanded\":" + nodesExpanded + ",\"peak_open\":" + peakOpen
+                    + ",\"closed_size\":" + closedSize
+                    + ",\"wall_ms\":" + String.format(Locale.ROOT, "%.3f", wallNanos / 1e6)
+                    + ",\"nodes_per_sec\":" + rate(nodesExpanded, wallNanos)
+                    + ",\"bound\":" + formatBound("null") + "}";
+        }
+    }
+}
@@ -0,0 +1,159 @@
+/********************************************************************************
+//*******************************************************************************
+//Class:        BidirectionalSearch
+//Description:  This is the bidirectional breadth-first mode of the tile puzzle
+//              solver. Moves can always be undone, so the goal state can be
+//              searched backwards with the same move generation. One frontier
+//              grows from the start and one from the goal, a whole layer at a
+//              time, always on the smaller side. Each new board is looked up
+//              in the other side's table, and the first board found in both
+//              joins two half-paths into a shortest solution. Each side only
+//              goes about half the solution depth, so the search stores about
+//              the square root of the boards a forward search would.
+**/
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+public class BidirectionalSearch {
+
+    // <editor-fold defaultstate="collapsed" desc="Global Variables">
+    private final PuzzleSolver solver;//The engine that receives the results
+    private final HashMap<PuzzleBoard, PuzzleBoard> forwardParents = new HashMap<>();//Board to its predecessor from the start
+    private final HashMap<PuzzleBoard, PuzzleBoard> backwardParents = new HashMap<>();//Board to its successor toward the goal
+    private ArrayList<PuzzleBoard> forwardFrontier = new ArrayList<>();//Newest layer from the start
+    private ArrayList<PuzzleBoard> backwardFrontier = new ArrayList<>();//Newest layer from the goal
+    private PuzzleBoard probeBoard;//Scratch board for trying moves before copying
+    // </editor-fold>
+
+/*******************************************************************************
+//Method:       BidirectionalSearch
+//Description:  Sets up a bidirectional search for an engine's start state.
+//Parameters:   givenSolver     the engine holding the start and goal states
+//Returns:      Nothing
+//Calls:        Nothing
+//Globals:      solver
+**/
+    BidirectionalSearch(PuzzleSolver givenSolver) {
+        solver = givenSolver;
+    }
+
+/*******************************************************************************
+//Method:       search
+//Description:  Grows both frontiers until they meet, then joins the two
+//              half-paths into the engine's solution path.
+//Parameters:   None
+//Returns:      Nothing
+//Calls:        expandLayer
+//              buildSolutionPath
+//Globals:      forwardParents
+//              backwardParents
+//              forwardFrontier
+//              backwardFrontier
+**/
+    void search() {
+        PuzzleBoard startBoard = solver.gameBoard.deepCopy();
+        PuzzleBoard goalBoard = solver.goalBoard.deepCopy();
+        startBoard.lastDirection = -1;
+        goalBoard.lastDirection = -1;
+        probeBoard = startBoard.deepCopy();
+        forwardParents.put(startBoard, null);
+        backwardParents.put(goalBoard, null);
+        forwardFrontier.add(startBoard);
+        backwardFrontier.add(goalBoard);
+        PuzzleBoard meetingBoard = startBoard.equals(goalBoard) ? startBoard : null;
+        while (meetingBoard == null) {
+            if (forwardFrontier.isEmpty() || backwardFrontier.isEmpty()) {
+                solver.printProgress("No solution: the start state cannot reach the goal state");
+                return;
+            }
+            //Stop once the boards held would go over the memory budget
+            long stored = (long) forwardParents.size() + backwardParents.size();
+            if (solver.nodeLimit > 0 && stored > solver.nodeLimit) {
+                solver.budgetExceeded = true;
+                solver.printProgress("Stopped: the search went over its memory budget");
+                return;
+            }
+            if (forwardFrontier.size() <= backwardFrontier.size()) {
+                meetingBoard = expandLayer(true);
+            } else {
+                meetingBoard = expandLayer(false);
+            }
+        }
+        buildSolutionPath(meetingBoard);
+    }
+
+/*******************************************************************************
+//Method:       expandLayer
+//Description:  Replaces one side's frontier by the layer after it. Before the
+//              layer no board was in both tables, so the shortest path is
+//              longer than the two depths together and the first board found
+//              in the other table is on a shortest path.
+//Parameters:   forward     true=expand from the start; false=from the goal
+//Returns:      PuzzleBoard the board both sides reached, or null
+//Calls:        Nothing
+//Globals:      forwardParents
+//              backwardParents
+//              forwardFrontier
+//              backwardFrontier
+//              probeBoard
+**/
+    private PuzzleBoard expandLayer(boolean forward) {
+        HashMap<PuzzleBoard, PuzzleBoard> ownParents = forward ? forwardParents : backwardParents;
+        HashMap<PuzzleBoard, PuzzleBoard> otherParents = forward ? backwardParents : forwardParents;
+        ArrayList<PuzzleBoard> frontier = forward ? forwardFrontier : backwardFrontier;
+        ArrayList<PuzzleBoard> nextLayer = new ArrayList<>(frontier.size() * 2);
+        for (PuzzleBoard curBoard : frontier) {
+            solver.nodesExpanded++;
+            for (int directionToMove = 0; directionToMove < 4; directionToMove++) {
+                if (!curBoard.canMove(directionToMove)
+                        || directionToMove == PuzzleSolver.oppositeDirection(curBoard.lastDirection)) {
+                    continue;
+                }
+                probeBoard.copyFrom(curBoard);
+                probeBoard.moveTile(directionToMove);
+                if (ownParents.containsKey(probeBoard)) {
+                    continue;
+                }
+                PuzzleBoard tempBoard = probeBoard.deepCopy();
+                tempBoard.depth++;
+                solver.totalBoardsCreated++;
+                ownParents.put(tempBoard, curBoard);
+                if (otherParents.containsKey(tempBoard)) {
+                    return tempBoard;
+                }
+                nextLayer.add(tempBoard);
+            }
+        }
+        if (forward) {
+            forwardFrontier = nextLayer;
+        } else {
+            backwardFrontier = nextLayer;
+        }
+        solver.peakOpenSize = Math.max(solver.peakOpenSize, forwardFrontier.size() + backwardFrontier.size());
+        return null;
+    }
+
+/*******************************************************************************
+//Method:       buildSolutionPath
+//Description:  Joins the path from the start to the meeting board with the
+//              path from the meeting board to the goal, and numbers the depths.
+//Parameters:   meetingBoard    the board both sides reached
+//Returns:      Nothing
+//Calls:        Nothing
+//Globals:      forwardParents
+//              backwardParents
+**/
+    private void buildSolutionPath(PuzzleBoard meetingBoard) {
+        for (PuzzleBoard board = meetingBoard; board != null; board = forwardParents.get(board)) {
+            solver.solutionPath.push(board);
+        }
+        for (PuzzleBoard board = backwardParents.get(meetingBoard); board != null; board = backwardParents.get(board)) {
+            solver.solutionPath.addLast(board);
+        }
+        int depth = 0;
+        for (PuzzleBoard board : solver.solutionPath) {
+            board.depth = depth++;
+        }
+    }
+}
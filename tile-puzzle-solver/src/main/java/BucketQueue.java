@@ -0,0 +1,217 @@
+/********************************************************************************
+//*******************************************************************************
+//Class:        BucketQueue
+//Description:  This is an open list for the tile puzzle solver that keeps
+//              boards in buckets indexed by their total score, and inside each
+//              score by their depth. Scores are small bounded integers, so
+//              adding a board and pulling the best one cost O(1) (amortized)
+//              with no comparisons or boxing. Ties on total score go to the
+//              deepest board, which has the lowest heuristic value left.
+**/
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+
+public class BucketQueue extends AbstractQueue<PuzzleBoard> {
+
+    // <editor-fold defaultstate="collapsed" desc="Global Variables">
+    private PuzzleBoard[][][] buckets = new PuzzleBoard[64][][];//Boards by [totalScore][depth]
+    private int[][] bucketSizes = new int[64][];//Number of boards in each bucket
+    private int[] scoreCounts = new int[64];//Number of boards with each total score
+    private int[] deepestDepth = new int[64];//Deepest possibly used depth for each total score
+    private int lowestScore = Integer.MAX_VALUE;//Lowest possibly used total score
+    private int size;//Total number of boards
+    // </editor-fold>
+
+/*******************************************************************************
+//Method:       offer
+//Description:  Adds a board to the bucket of its total score and depth.
+//Parameters:   board       the board to add
+//Returns:      boolean     always true
+//Calls:        ensureScore
+//              ensureDepth
+//Globals:      buckets
+//              bucketSizes
+//              scoreCounts
+//              deepestDepth
+//              lowestScore
+//              size
+**/
+    @Override
+    public boolean offer(PuzzleBoard board) {
+        int score = Math.max(board.totalScore, 0);
+        int depth = board.depth;
+        ensureScore(score);
+        ensureDepth(score, depth);
+        PuzzleBoard[] bucket = buckets[score][depth];
+        int bucketSize = bucketSizes[score][depth];
+        if (bucket == null) {
+            bucket = new PuzzleBoard[8];
+            buckets[score][depth] = bucket;
+        } else if (bucketSize == bucket.length) {
+            bucket = Arrays.copyOf(bucket, bucketSize * 2);
+            buckets[score][depth] = bucket;
+        }
+        bucket[bucketSize] = board;
+        bucketSizes[score][depth] = bucketSize + 1;
+        scoreCounts[score]++;
+        deepestDepth[score] = Math.max(deepestDepth[score], depth);
+        lowestScore = Math.min(lowestScore, score);
+        size++;
+        return true;
+    }
+
+/*******************************************************************************
+//Method:       poll
+//Description:  Removes the board with the lowest total score, taking the
+//              deepest one on ties.
+//Parameters:   None
+//Returns:      PuzzleBoard     the best board, or null when empty
+//Calls:        findBest
+//Globals:      buckets
+//              bucketSizes
+//              scoreCounts
+//              size
+**/
+    @Override
+    public PuzzleBoard poll() {
+        if (size == 0) {
+            return null;
+        }
+        findBest();
+        int score = lowestScore;
+        int depth = deepestDepth[score];
+        int bucketSize = bucketSizes[score][depth] - 1;
+        PuzzleBoard board = buckets[score][depth][bucketSize];
+        buckets[score][depth][bucketSize] = null;
+        bucketSizes[score][depth] = bucketSize;
+        scoreCounts[score]--;
+        size--;
+        return board;
+    }
+
+/*******************************************************************************
+//Method:       peek
+//Description:  Gets the board poll would return without removing it.
+//Parameters:   None
+//Returns:      PuzzleBoard     the best board, or null when empty
+//Calls:        findBest
+//Globals:      buckets
+//              bucketSizes
+**/
+    @Override
+    public PuzzleBoard peek() {
+        if (size == 0) {
+            return null;
+        }
+        findBest();
+        int depth = deepestDepth[lowestScore];
+        return buckets[lowestScore][depth][bucketSizes[lowestScore][depth] - 1];
+    }
+
+/*******************************************************************************
+//Method:       size
+//Description:  Gets the number of boards in the queue.
+//Parameters:   None
+//Returns:      int         the number of boards
+//Calls:        Nothing
+//Globals:      size
+**/
+    @Override
+    public int size() {
+        return size;
+    }
+
+/*******************************************************************************
+//Method:       iterator
+//Description:  Iterates over a snapshot of the boards, in no particular order.
+//Parameters:   None
+//Returns:      Iterator    the iterator
+//Calls:        Nothing
+//Globals:      buckets
+//              bucketSizes
+**/
+    @Override
+    public Iterator<PuzzleBoard> iterator() {
+        ArrayList<PuzzleBoard> snapshot = new ArrayList<>(size);
+        for (int score = 0; score < buckets.length; score++) {
+            if (buckets[score] == null) {
+                continue;
+            }
+            for (int depth = 0; depth < buckets[score].length; depth++) {
+                for (int i = 0; i < bucketSizes[score][depth]; i++) {
+                    snapshot.add(buckets[score][depth][i]);
+                }
+            }
+        }
+        return snapshot.iterator();
+    }
+
+/*******************************************************************************
+//Method:       findBest
+//Description:  Moves the lowest score and deepest depth pointers onto a
+//              non-empty bucket. The pointers only move past empty buckets,
+//              so the work is paid for by earlier additions.
+//Parameters:   None
+//Returns:      Nothing
+//Calls:        Nothing
+//Globals:      scoreCounts
+//              bucketSizes
+//              deepestDepth
+//              lowestScore
+**/
+    private void findBest() {
+        while (scoreCounts[lowestScore] == 0) {
+            lowestScore++;
+        }
+        int[] sizes = bucketSizes[lowestScore];
+        while (sizes[deepestDepth[lowestScore]] == 0) {
+            deepestDepth[lowestScore]--;
+        }
+    }
+
+/*******************************************************************************
+//Method:       ensureScore
+//Description:  Grows the per-score arrays to hold a total score.
+//Parameters:   score       the total score
+//Returns:      Nothing
+//Calls:        Nothing
+//Globals:      buckets
+//              bucketSizes
+//              scoreCounts
+//              deepestDepth
+**/
+    private void ensureScore(int score) {
+        if (score >= buckets.length) {
+            int newLength = Math.max(score + 1, buckets.length * 2);
+            buckets = Arrays.copyOf(buckets, newLength);
+            bucketSizes = Arrays.copyOf(bucketSizes, newLength);
+            scoreCounts = Arrays.copyOf(scoreCounts, newLength);
+            deepestDepth = Arrays.copyOf(deepestDepth, newLength);
+        }
+        if (buckets[score] == null) {
+            buckets[score] = new PuzzleBoard[16][];
+            bucketSizes[score] = new int[16];
+        }
+    }
+
+/*******************************************************************************
+//Method:       ensureDepth
+//Description:  Grows the depth arrays of a total score to hold a depth.
+//Parameters:   score       the total score
+//              depth       the depth
+//Returns:      Nothing
+//Calls:        Nothing
+//Globals:      buckets
+//              bucketSizes
+**/
+    private void ensureDepth(int score, int depth) {
+        if (depth >= buckets[score].length) {
+            int newLength = Math.max(depth + 1, buckets[score].length * 2);
+            buckets[score] = Arrays.copyOf(buckets[score], newLength);
+            bucketSizes[score] = Arrays.copyOf(bucketSizes[score], newLength);
+        }
+    }
+}
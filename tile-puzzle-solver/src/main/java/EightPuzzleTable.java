@@ -0,0 +1,294 @@
+/********************************************************************************
+//*******************************************************************************
+//Class:        EightPuzzleTable
+//Description:  This is the complete distance table for the 3x3 (8) puzzle.
+//              Only 181,440 boards can reach the goal, so a breadth-first
+//              search back from the goal stores the exact distance of every
+//              one of them in a byte array. Any 8-puzzle is then solved with no
+//              search by always taking a move that lowers the distance by one.
+//
+//              A board is indexed by its blank cell and the rank of its tile
+//              order (see rank). The table is built once and written to the
+//              pattern database directory.
+//
+//              File layout (big-endian): int magic, then one byte per board
+//              indexed by its rank.
+**/
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+public class EightPuzzleTable {
+
+    // <editor-fold defaultstate="collapsed" desc="Global Variables">
+    static final int SIDE = 3;//The only side length the table covers
+    static final int UNREACHABLE = -1;//Distance reported for boards that cannot reach the goal
+    private static final int CELLS = SIDE * SIDE;
+    private static final int TILE_ORDERS = 20160;//8! / 2 tile orders with solvable parity
+    private static final int STATE_COUNT = CELLS * TILE_ORDERS;//Boards that can reach the goal
+    private static final int MAGIC = 0x38505431;//"8PT1"
+    private static final String FILE_NAME = "3x3-complete.tbl";
+    private static final int[] FACTORIALS = {1, 1, 2, 6, 24, 120, 720, 5040};//Place values of the rank digits
+    private static EightPuzzleTable loaded;//The table once built or read
+
+    private final byte[] distances;//Distance of every board by rank (-1=not reached)
+    // </editor-fold>
+
+/*******************************************************************************
+//Method:       EightPuzzleTable
+//Description:  Wraps a filled distance array.
+//Parameters:   givenDistances      the distance of every board by rank
+//Returns:      Nothing
+//Calls:        Nothing
+//Globals:      distances
+**/
+    private EightPuzzleTable(byte[] givenDistances) {
+        distances = givenDistances;
+    }
+
+/*******************************************************************************
+//Method:       load
+//Description:  Gets the table, reading it from disk or building (and saving)
+//              it on first use.
+//Parameters:   None
+//Returns:      EightPuzzleTable    the table
+//Calls:        readTable
+//              buildTable
+//              writeTable
+//Globals:      loaded
+**/
+    static synchronized EightPuzzleTable load() {
+        if (loaded != null) {
+            return loaded;
+        }
+        File file = new File(PatternDatabase.getDefaultDirectory(), FILE_NAME);
+        byte[] table = null;
+        if (file.isFile()) {
+            try {
+                table = readTable(file);
+            } catch (IOException e) {
+                System.out.println("Could not read " + file + ": " + e.getMessage() + "; rebuilding it");
+            }
+        }
+        if (table == null) {
+            table = buildTable();
+            try {
+                writeTable(file, table);
+            } catch (IOException e) {
+                System.out.println("Could not save " + file + ": " + e.getMessage());
+            }
+        }
+        loaded = new EightPuzzleTable(table);
+        return loaded;
+    }
+
+/*******************************************************************************
+//Method:       distance
+//Description:  Looks up the exact distance of a 3x3 board to the goal.
+//Parameters:   board       the board
+//Returns:      int         the number of moves, or UNREACHABLE
+//Calls:        rank
+//Globals:      distances
+**/
+    int distance(PuzzleBoard board) {
+        int[] cells = new int[CELLS];
+        for (int cell = 0; cell < CELLS; cell++) {
+            cells[cell] = board.getTile(cell / SIDE, cell % SIDE);
+        }
+        int rank = rank(cells);
+        return rank < 0 ? UNREACHABLE : distances[rank];
+    }
+
+/*******************************************************************************
+//Method:       rank
+//Description:  Ranks a board as blank cell * 20160 + half the Lehmer code of
+//              its tiles read in cell order. Swapping the last two tiles only
+//              changes the lowest Lehmer digit and flips the parity, so of
+//              each pair of codes exactly one board can reach the goal, and
+//              halving the code numbers the solvable boards densely.
+//Parameters:   cells       the tile in each cell (0=blank)
+//Returns:      int         the rank, or -1 if the board cannot reach the goal
+//Calls:        Nothing
+//Globals:      FACTORIALS
+**/
+    static int rank(int[] cells) {
+        int[] tiles = new int[CELLS - 1];
+        int blankCell = 0;
+        int count = 0;
+        for (int cell = 0; cell < CELLS; cell++) {
+            if (cells[cell] == 0) {
+                blankCell = cell;
+            } else {
+                tiles[count++] = cells[cell];
+            }
+        }
+        int code = 0;
+        int inversions = 0;
+        for (int i = 0; i < tiles.length; i++) {
+            int smallerAfter = 0;
+            for (int j = i + 1; j < tiles.length; j++) {
+                if (tiles[j] < tiles[i]) {
+                    smallerAfter++;
+                }
+            }
+            code += smallerAfter * FACTORIALS[tiles.length - 1 - i];
+            inversions += smallerAfter;
+        }
+        //On an odd width only boards with an even number of inversions are solvable
+        if ((inversions & 1) != 0) {
+            return -1;
+        }
+        return blankCell * TILE_ORDERS + code / 2;
+    }
+
+/*******************************************************************************
+//Method:       buildTable
+//Description:  Runs the breadth-first search back from the goal over boards
+//              packed as 4 bits per cell.
+//Parameters:   None
+//Returns:      byte[]      the distance of every board by rank
+//Calls:        rank
+//Globals:      None
+**/
+    static byte[] buildTable() {
+        byte[] table = new byte[STATE_COUNT];
+        Arrays.fill(table, (byte) UNREACHABLE);
+        long[] queue = new long[STATE_COUNT];
+        int head = 0;
+        int tail = 0;
+        int[] cells = new int[CELLS];
+        for (int cell = 0; cell < CELLS - 1; cell++) {
+            cells[cell] = cell + 1;
+        }
+        queue[tail++] = pack(cells);
+        table[rank(cells)] = 0;
+        while (head < tail) {
+            long state = queue[head++];
+            unpack(state, cells);
+            int distance = table[rank(cells)];
+            int blankCell = 0;
+            while (cells[blankCell] != 0) {
+                blankCell++;
+            }
+            for (int direction = 0; direction < 4; direction++) {
+                int tileCell = neighborCell(blankCell, direction);
+                if (tileCell < 0) {
+                    continue;
+                }
+                cells[blankCell] = cells[tileCell];
+                cells[tileCell] = 0;
+                int childRank = rank(cells);
+                if (table[childRank] == UNREACHABLE) {
+                    table[childRank] = (byte) (distance + 1);
+                    queue[tail++] = pack(cells);
+                }
+                cells[tileCell] = cells[blankCell];
+                cells[blankCell] = 0;
+            }
+        }
+        return table;
+    }
+
+/*******************************************************************************
+//Method:       neighborCell
+//Description:  Gets the cell next to a cell in a direction.
+//Parameters:   cell        the cell
+//              direction   0=up; 1=right; 2=down; 3=left
+//Returns:      int         the neighboring cell, or -1 off the board
+//Calls:        Nothing
+//Globals:      None
+**/
+    private static int neighborCell(int cell, int direction) {
+        int row = cell / SIDE;
+        int col = cell % SIDE;
+        switch (direction) {
+            case 0:
+                return row > 0 ? cell - SIDE : -1;
+            case 1:
+                return col < SIDE - 1 ? cell + 1 : -1;
+            case 2:
+                return row < SIDE - 1 ? cell + SIDE : -1;
+            default:
+                return col > 0 ? cell - 1 : -1;
+        }
+    }
+
+/*******************************************************************************
+//Method:       pack
+//Description:  Packs the tile in each cell into 4 bits of a long.
+//Parameters:   cells       the tile in each cell
+//Returns:      long        the packed board
+//Calls:        Nothing
+//Globals:      None
+**/
+    private static long pack(int[] cells) {
+        long state = 0;
+        for (int cell = 0; cell < CELLS; cell++) {
+            state |= (long) cells[cell] << (cell * 4);
+        }
+        return state;
+    }
+
+/*******************************************************************************
+//Method:       unpack
+//Description:  Unpacks a packed board into the tile in each cell.
+//Parameters:   state       the packed board
+//              cells       filled with the tile in each cell
+//Returns:      Nothing
+//Calls:        Nothing
+//Globals:      None
+**/
+    private static void unpack(long state, int[] cells) {
+        for (int cell = 0; cell < CELLS; cell++) {
+            cells[cell] = (int) (state >>> (cell * 4)) & 0xF;
+        }
+    }
+
+/*******************************************************************************
+//Method:       readTable
+//Description:  Reads a saved table.
+//Parameters:   file        the table file
+//Returns:      byte[]      the distance of every board by rank
+//Calls:        Nothing
+//Globals:      None
+**/
+    private static byte[] readTable(File file) throws IOException {
+        try (DataInputStream input = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file), 1 << 16))) {
+            if (input.readInt() != MAGIC || file.length() != 4 + STATE_COUNT) {
+                throw new IOException("bad table file");
+            }
+            byte[] table = new byte[STATE_COUNT];
+            input.readFully(table);
+            return table;
+        }
+    }
+
+/*******************************************************************************
+//Method:       writeTable
+//Description:  Saves a table.
+//Parameters:   file        the table file
+//              table       the distance of every board by rank
+//Returns:      Nothing
+//Calls:        Nothing
+//Globals:      None
+**/
+    private static void writeTable(File file, byte[] table) throws IOException {
+        File directory = file.getParentFile();
+        if (directory != null && !directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("could not create " + directory);
+        }
+        try (DataOutputStream output = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(file), 1 << 16))) {
+            output.writeInt(MAGIC);
+            output.write(table);
+        }
+    }
+}
@@ -0,0 +1,643 @@
+/********************************************************************************
+//*******************************************************************************
+//Class:        ExternalMemorySearch
+//Description:  This is the external-memory breadth-first mode of the tile
+//              puzzle solver, for boards whose layers do not fit in the heap.
+//              Each layer of the search is a file of packed boards on disk,
+//              sorted and free of duplicates. The heap only holds one sort
+//              buffer.
+//
+//              Duplicates are found late (delayed duplicate detection). The
+//              children of a layer are collected in the buffer. When it fills
+//              up, it is sorted and written out as a run. Then a streaming
+//              merge of the runs writes the next layer. It drops repeats,
+//              and it drops the boards of the layer before. At most
+//              MAX_MERGE_FAN_IN runs are open at once; more runs are first
+//              merged in groups, in extra passes. Every move swaps
+//              the blank between two colors of a checkerboard, so a child can
+//              never be in its own layer, only in the one before it or the
+//              next one.
+//
+//              All file access is sequential through large NIO buffers. The
+//              layers stay on disk until the end, so the path can be traced
+//              back from the goal by binary searches in them. The files go
+//              in a new directory under the system property external.dir
+//              (default: the temporary directory), which is deleted after the
+//              search.
+//
+//              The heap budget is split between the run buffer and the merge
+//              read buffers, after the layer buffers are set aside.
+//
+//              This mode covers breadth-first search only. Best-first
+//              delayed duplicate detection (by f-layer) is not built; the
+//              memory-bounded A* mode is the best-first choice for large
+//              instances.
+//
+//              File layout: every board is its packed words (big-endian), one
+//              after another, in ascending order.
+**/
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+public class ExternalMemorySearch {
+
+    // <editor-fold defaultstate="collapsed" desc="Global Variables">
+    private static final int IO_BUFFER_BYTES = 1 << 20;//Size of the layer read and write buffers
+    private static final int MIN_MERGE_BUFFER_BYTES = 1 << 16;//Smallest read buffer per run while merging
+    private static final int MIN_RUN_RECORDS = 1 << 16;//Fewest boards sorted per run
+    private static final long MAX_RUN_BUFFER_BYTES = 1L << 28;//Largest run buffer, whatever the budget
+    private static final int LAYER_BUFFERS = 3;//I/O buffers open at once: a layer read, a write, the layer before
+    private static final int MAX_MERGE_FAN_IN = 64;//Most runs merged (and files open) at once
+    private static final int INSERTION_SORT_SIZE = 16;//Ranges this small are insertion sorted
+
+    private final PuzzleSolver solver;//The engine that receives the results
+    private final int words;//Longs per packed board
+    private final int recordBytes;//Bytes per packed board on disk
+    private final long[] goalRecord;//The goal state, packed
+    private long[] runBuffer;//Children waiting to be sorted into a run
+    private int runCapacity;//Boards the run buffer holds
+    private final int maxRunCapacity;//Boards the run buffer may grow to
+    private final long mergeBudgetBytes;//Heap the merge read buffers may take together
+    private final int mergeFanIn;//Most runs merged at once
+    private int runNumber;//Names the next run file
+    private int runCount;//Boards in the run buffer
+    private final ArrayList<Path> runs = new ArrayList<>();//Sorted runs of the layer being built
+    private final ArrayList<Path> layers = new ArrayList<>();//Layer files by depth
+    private Path directory;//Directory holding the files
+    private PuzzleBoard probeBoard;//Scratch board for unpacking and trying moves
+    // </editor-fold>
+
+/*******************************************************************************
+//Method:       ExternalMemorySearch
+//Description:  Sets up an external-memory search for an engine's start state.
+//              The run buffer starts small and doubles while layers need it,
+//              up to half of what the engine's memory budget (or a quarter of
+//              the heap) leaves after the layer buffers. The merge read
+//              buffers take the other half, which also bounds the fan-in.
+//Parameters:   givenSolver     the engine holding the start state and budget
+//Returns:      Nothing
+//Calls:        PuzzleBoard.packedWordCount
+//              PuzzleBoard.writePacked
+//Globals:      solver
+//              words
+//              recordBytes
+//              goalRecord
+//              runBuffer
+//              runCapacity
+//              maxRunCapacity
+//              mergeBudgetBytes
+//              mergeFanIn
+**/
+    ExternalMemorySearch(PuzzleSolver givenSolver) {
+        solver = givenSolver;
+        words = givenSolver.gameBoard.packedWordCount();
+        recordBytes = words * 8;
+        goalRecord = new long[words];
+        givenSolver.goalBoard.writePacked(goalRecord, 0);
+        long budgetBytes = givenSolver.nodeLimit > 0 ? givenSolver.nodeLimit * PuzzleSolver.BYTES_PER_NODE
+                : Runtime.getRuntime().maxMemory() / 4;
+        long halfBytes = (budgetBytes - (long) LAYER_BUFFERS * IO_BUFFER_BYTES) / 2;
+        maxRunCapacity = (int) Math.max(MIN_RUN_RECORDS, Math.min(MAX_RUN_BUFFER_BYTES, halfBytes) / recordBytes);
+        mergeBudgetBytes = Math.max(2L * MIN_MERGE_BUFFER_BYTES, halfBytes);
+        mergeFanIn = (int) Math.min(MAX_MERGE_FAN_IN, mergeBudgetBytes / MIN_MERGE_BUFFER_BYTES);
+        runCapacity = MIN_RUN_RECORDS;
+        runBuffer = new long[runCapacity * words];
+    }
+
+/*******************************************************************************
+//Method:       search
+//Description:  Builds the layers one after another until the goal turns up,
+//              then traces the path back through them. Always deletes the
+//              files.
+//Parameters:   None
+//Returns:      Nothing
+//Calls:        expandLayer
+//              mergeRuns
+//              buildSolutionPath
+//              deleteFiles
+//Globals:      directory
+//              layers
+//              probeBoard
+**/
+    void search() {
+        PuzzleBoard startBoard = solver.gameBoard.deepCopy();
+        startBoard.lastDirection = -1;
+        startBoard.depth = 0;
+        probeBoard = startBoard.deepCopy();
+        if (startBoard.equals(solver.goalBoard)) {
+            solver.solutionPath.push(startBoard);
+            return;
+        }
+        try {
+            Path base = Paths.get(System.getProperty("external.dir", System.getProperty("java.io.tmpdir")));
+            directory = Files.createTempDirectory(Files.createDirectories(base), "tile-puzzle-");
+            Path startLayer = directory.resolve("layer-0.bin");
+            try (RecordWriter writer = new RecordWriter(startLayer, IO_BUFFER_BYTES)) {
+                long[] startRecord = new long[words];
+                startBoard.writePacked(startRecord, 0);
+                writer.write(startRecord, 0);
+            }
+            layers.add(startLayer);
+            for (int depth = 0; ; depth++) {
+                if (expandLayer(depth)) {
+                    buildSolutionPath(depth + 1);
+                    return;
+                }
+                long layerSize = mergeRuns(depth + 1);
+                if (layerSize == 0) {
+                    solver.printProgress("No solution: the start state cannot reach the goal state");
+                    return;
+                }
+                solver.peakOpenSize = (int) Math.max(solver.peakOpenSize, Math.min(Integer.MAX_VALUE, layerSize));
+            }
+        } catch (IOException e) {
+            solver.solutionPath.clear();
+            solver.printProgress("Stopped: the external search failed: " + e.getMessage());
+        } finally {
+            deleteFiles();
+        }
+    }
+
+/*******************************************************************************
+//Method:       expandLayer
+//Description:  Streams one layer from disk and collects the children of its
+//              boards, writing a sorted run each time the buffer fills.
+//Parameters:   depth       the depth of the layer to expand
+//Returns:      boolean     true=a child is the goal; false=the runs are written
+//Calls:        writeRun
+//              growRunBuffer
+//              PuzzleBoard.readPacked
+//              PuzzleBoard.writePacked
+//Globals:      layers
+//              runBuffer
+//              runCapacity
+//              maxRunCapacity
+//              runCount
+//              probeBoard
+**/
+    private boolean expandLayer(int depth) throws IOException {
+        PuzzleBoard board = probeBoard.deepCopy();
+        try (RecordReader reader = new RecordReader(layers.get(depth), IO_BUFFER_BYTES)) {
+            while (reader.advance()) {
+                board.readPacked(reader.record, 0);
+                solver.nodesExpanded++;
+                for (int directionToMove = 0; directionToMove < 4; directionToMove++) {
+                    if (!board.canMove(directionToMove)) {
+                        continue;
+                    }
+                    probeBoard.copyFrom(board);
+                    probeBoard.moveTile(directionToMove);
+                    solver.totalBoardsCreated++;
+                    if (runCount == runCapacity) {
+                        if (runCapacity < maxRunCapacity) {
+                            growRunBuffer();
+                        } else {
+                            writeRun();
+                        }
+                    }
+                    probeBoard.writePacked(runBuffer, runCount * words);
+                    if (compareRecords(runBuffer, runCount * words, goalRecord, 0) == 0) {
+                        return true;
+                    }
+                    runCount++;
+                }
+            }
+        }
+        if (runCount > 0) {
+            writeRun();
+        }
+        return false;
+    }
+
+/*******************************************************************************
+//Method:       growRunBuffer
+//Description:  Doubles the run buffer, up to its largest size, keeping the
+//              boards already in it.
+//Parameters:   None
+//Returns:      Nothing
+//Calls:        Nothing
+//Globals:      runBuffer
+//              runCapacity
+//              maxRunCapacity
+**/
+    private void growRunBuffer() {
+        runCapacity = (int) Math.min(maxRunCapacity, (long) runCapacity * 2);
+        runBuffer = Arrays.copyOf(runBuffer, runCapacity * words);
+    }
+
+/*******************************************************************************
+//Method:       writeRun
+//Description:  Sorts the run buffer and writes it to a new run file, skipping
+//              repeats, then empties the buffer.
+//Parameters:   None
+//Returns:      Nothing
+//Calls:        sortRecords
+//Globals:      runBuffer
+//              runCount
+//              runs
+//              runNumber
+**/
+    private void writeRun() throws IOException {
+        if (words == 1) {
+            Arrays.sort(runBuffer, 0, runCount);
+        } else {
+            sortRecords(0, runCount - 1, new long[words]);
+        }
+        Path run = directory.resolve("run-" + runNumber++ + ".bin");
+        try (RecordWriter writer = new RecordWriter(run, IO_BUFFER_BYTES)) {
+            for (int i = 0; i < runCount; i++) {
+                if (i == 0 || compareRecords(runBuffer, i * words, runBuffer, (i - 1) * words) != 0) {
+                    writer.write(runBuffer, i * words);
+                }
+            }
+        }
+        runs.add(run);
+        runCount = 0;
+    }
+
+/*******************************************************************************
+//Method:       mergeRuns
+//Description:  Merges the sorted runs into the next layer file, dropping
+//              repeats and boards of the layer before the one expanded. While
+//              there are more runs than the fan-in, groups of them are first
+//              merged into longer runs. The runs are deleted afterwards.
+//Parameters:   depth       the depth of the layer to write
+//Returns:      long        the number of boards in the new layer
+//Calls:        mergeFiles
+//Globals:      runs
+//              layers
+//              mergeFanIn
+//              runNumber
+**/
+    private long mergeRuns(int depth) throws IOException {
+        int sortedRuns = runs.size();
+        int passes = 1;
+        while (runs.size() > mergeFanIn) {
+            ArrayList<Path> merged = new ArrayList<>();
+            for (int first = 0; first < runs.size(); first += mergeFanIn) {
+                List<Path> group = runs.subList(first, Math.min(runs.size(), first + mergeFanIn));
+                if (group.size() == 1) {
+                    merged.add(group.get(0));
+                    continue;
+                }
+                Path run = directory.resolve("run-" + runNumber++ + ".bin");
+                mergeFiles(group, run, null);
+                for (Path input : group) {
+                    Files.delete(input);
+                }
+                merged.add(run);
+            }
+            runs.clear();
+            runs.addAll(merged);
+            passes++;
+        }
+        Path layer = directory.resolve("layer-" + depth + ".bin");
+        //The layer before the one expanded is the only place a child can repeat
+        long layerSize = mergeFiles(runs, layer, depth >= 2 ? layers.get(depth - 2) : null);
+        solver.printProgress("Depth " + depth + ": " + layerSize + " boards from " + sortedRuns + " sorted runs in "
+                + passes + " merge passes");
+        for (Path run : runs) {
+            Files.delete(run);
+        }
+        runs.clear();
+        layers.add(layer);
+        return layerSize;
+    }
+
+/*******************************************************************************
+//Method:       mergeFiles
+//Description:  Merges sorted files into one, dropping repeats and any board
+//              found in an excluded sorted file. The merge budget is split
+//              between the inputs' read buffers.
+//Parameters:   inputs      the sorted files (at most the fan-in)
+//              output      the file to write
+//              excluded    a sorted file of boards to leave out (null=none)
+//Returns:      long        the number of boards written
+//Calls:        compareRecords
+//Globals:      mergeBudgetBytes
+**/
+    private long mergeFiles(List<Path> inputs, Path output, Path excluded) throws IOException {
+        PriorityQueue<RecordReader> heads = new PriorityQueue<>(Math.max(1, inputs.size()),
+                new Comparator<RecordReader>() {
+                    @Override
+                    public int compare(RecordReader first, RecordReader second) {
+                        return compareRecords(first.record, 0, second.record, 0);
+                    }
+                });
+        RecordReader earlier = null;
+        try (RecordWriter writer = new RecordWriter(output, IO_BUFFER_BYTES)) {
+            int mergeBufferBytes = (int) Math.max(MIN_MERGE_BUFFER_BYTES,
+                    Math.min(IO_BUFFER_BYTES, mergeBudgetBytes / Math.max(1, inputs.size())));
+            for (Path input : inputs) {
+                RecordReader reader = new RecordReader(input, mergeBufferBytes);
+                if (reader.advance()) {
+                    heads.add(reader);
+                } else {
+                    reader.close();
+                }
+            }
+            if (excluded != null) {
+                earlier = new RecordReader(excluded, IO_BUFFER_BYTES);
+                earlier.advance();
+            }
+            long[] last = new long[words];
+            boolean haveLast = false;
+            while (!heads.isEmpty()) {
+                RecordReader head = heads.poll();
+                if (!haveLast || compareRecords(head.record, 0, last, 0) != 0) {
+                    System.arraycopy(head.record, 0, last, 0, words);
+                    haveLast = true;
+                    while (earlier != null && earlier.hasRecord && compareRecords(earlier.record, 0, last, 0) < 0) {
+                        earlier.advance();
+                    }
+                    if (earlier == null || !earlier.hasRecord || compareRecords(earlier.record, 0, last, 0) != 0) {
+                        writer.write(last, 0);
+                    }
+                }
+                if (head.advance()) {
+                    heads.add(head);
+                } else {
+                    head.close();
+                }
+            }
+            return writer.count;
+        } finally {
+            for (RecordReader reader : heads) {
+                reader.close();
+            }
+            if (earlier != null) {
+                earlier.close();
+            }
+        }
+    }
+
+/*******************************************************************************
+//Method:       buildSolutionPath
+//Description:  Traces the path back from the goal: each board has a neighbor
+//              in the layer before it, found by binary search in that file.
+//Parameters:   goalDepth   the depth the goal was found at
+//Returns:      Nothing
+//Calls:        containsRecord
+//Globals:      layers
+//              probeBoard
+**/
+    private void buildSolutionPath(int goalDepth) throws IOException {
+        PuzzleBoard current = solver.goalBoard.deepCopy();
+        current.depth = goalDepth;
+        solver.solutionPath.push(current);
+        long[] record = new long[words];
+        for (int depth = goalDepth - 1; depth >= 0; depth--) {
+            PuzzleBoard previous = null;
+            try (FileChannel channel = FileChannel.open(layers.get(depth), StandardOpenOption.READ)) {
+                for (int directionToMove = 0; directionToMove < 4 && previous == null; directionToMove++) {
+                    if (!current.canMove(directionToMove)) {
+                        continue;
+                    }
+                    probeBoard.copyFrom(current);
+                    probeBoard.moveTile(directionToMove);
+                    probeBoard.writePacked(record, 0);
+                    if (containsRecord(channel, record)) {
+                        previous = probeBoard.deepCopy();
+                        current.lastDirection = PuzzleSolver.oppositeDirection(directionToMove);
+                    }
+                }
+            }
+            if (previous == null) {
+                throw new IOException("layer " + depth + " has no board next to the path");
+            }
+            previous.depth = depth;
+            previous.lastDirection = -1;
+            solver.solutionPath.push(previous);
+            current = previous;
+        }
+    }
+
+/*******************************************************************************
+//Method:       containsRecord
+//Description:  Binary searches a sorted layer file for a board.
+//Parameters:   channel     the open layer file
+//              record      the packed board
+//Returns:      boolean     true=the board is in the layer
+//Calls:        compareRecords
+//Globals:      None
+**/
+    private boolean containsRecord(FileChannel channel, long[] record) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(recordBytes);
+        long[] probe = new long[words];
+        long low = 0;
+        long high = channel.size() / recordBytes - 1;
+        while (low <= high) {
+            long middle = (low + high) >>> 1;
+            buffer.clear();
+            while (buffer.hasRemaining() && channel.read(buffer, middle * recordBytes + buffer.position()) > 0) {
+                //Keep reading until the whole board is in
+            }
+            buffer.flip();
+            for (int i = 0; i < words; i++) {
+                probe[i] = buffer.getLong();
+            }
+            int order = compareRecords(probe, 0, record, 0);
+            if (order == 0) {
+                return true;
+            } else if (order < 0) {
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return false;
+    }
+
+/*******************************************************************************
+//Method:       sortRecords
+//Description:  Quicksorts the multi-word boards in the run buffer (Hoare
+//              partition around the middle board), finishing small ranges by
+//              insertion sort. Recursing on the smaller side keeps the stack
+//              shallow.
+//Parameters:   low, high   the first and last board to sort
+//              pivot       scratch space for one board
+//Returns:      Nothing
+//Calls:        compareRecords
+//              swapRecords
+//Globals:      runBuffer
+**/
+    private void sortRecords(int low, int high, long[] pivot) {
+        while (high - low >= INSERTION_SORT_SIZE) {
+            System.arraycopy(runBuffer, ((low + high) >>> 1) * words, pivot, 0, words);
+            int left = low - 1;
+            int right = high + 1;
+            while (true) {
+                do {
+                    left++;
+                } while (compareRecords(runBuffer, left * words, pivot, 0) < 0);
+                do {
+                    right--;
+                } while (compareRecords(runBuffer, right * words, pivot, 0) > 0);
+                if (left >= right) {
+                    break;
+                }
+                swapRecords(left, right);
+            }
+            if (right - low < high - right) {
+                sortRecords(low, right, pivot);
+                low = right + 1;
+            } else {
+                sortRecords(right + 1, high, pivot);
+                high = right;
+            }
+        }
+        for (int i = low + 1; i <= high; i++) {
+            for (int j = i; j > low && compareRecords(runBuffer, j * words, runBuffer, (j - 1) * words) < 0; j--) {
+                swapRecords(j, j - 1);
+            }
+        }
+    }
+
+    private void swapRecords(int first, int second) {
+        for (int i = 0; i < words; i++) {
+            long word = runBuffer[first * words + i];
+            runBuffer[first * words + i] = runBuffer[second * words + i];
+            runBuffer[second * words + i] = word;
+        }
+    }
+
+/*******************************************************************************
+//Method:       compareRecords
+//Description:  Orders two packed boards word by word.
+//Parameters:   first, firstOffset      the first board and its first word
+//              second, secondOffset    the second board and its first word
+//Returns:      int         below, at or above 0 as the first board is less,
+//                          equal or greater
+//Calls:        Nothing
+//Globals:      words
+**/
+    private int compareRecords(long[] first, int firstOffset, long[] second, int secondOffset) {
+        for (int i = 0; i < words; i++) {
+            if (first[firstOffset + i] != second[secondOffset + i]) {
+                return Long.compare(first[firstOffset + i], second[secondOffset + i]);
+            }
+        }
+        return 0;
+    }
+
+/*******************************************************************************
+//Method:       deleteFiles
+//Description:  Deletes the layer and run files and their directory.
+//Parameters:   None
+//Returns:      Nothing
+//Calls:        Nothing
+//Globals:      directory
+**/
+    private void deleteFiles() {
+        if (directory == null) {
+            return;
+        }
+        try {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+                for (Path file : files) {
+                    Files.delete(file);
+                }
+            }
+            Files.delete(directory);
+        } catch (IOException e) {
+            System.out.println("Could not delete " + directory + ": " + e.getMessage());
+        }
+    }
+
+/********************************************************************************
+//*******************************************************************************
+//Class:        RecordReader
+//Description:  This class streams packed boards from a file, one at a time.
+**/
+    private class RecordReader implements Closeable {
+
+        final FileChannel channel;
+        final ByteBuffer buffer;
+        final long[] record = new long[words];//The board last read
+        boolean hasRecord;//Whether record holds a board (false at the end)
+
+        RecordReader(Path file, int bufferBytes) throws IOException {
+            channel = FileChannel.open(file, StandardOpenOption.READ);
+            buffer = ByteBuffer.allocate(bufferBytes / recordBytes * recordBytes);
+            buffer.flip();
+        }
+
+        boolean advance() throws IOException {
+            if (buffer.remaining() < recordBytes) {
+                buffer.compact();
+                while (buffer.hasRemaining() && channel.read(buffer) > 0) {
+                    //Fill the whole buffer so the reads stay large
+                }
+                buffer.flip();
+            }
+            hasRecord = buffer.remaining() >= recordBytes;
+            if (hasRecord) {
+                for (int i = 0; i < words; i++) {
+                    record[i] = buffer.getLong();
+                }
+            }
+            return hasRecord;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+/********************************************************************************
+//*******************************************************************************
+//Class:        RecordWriter
+//Description:  This class writes packed boards to a new file through a large
+//              buffer.
+**/
+    private class RecordWriter implements Closeable {
+
+        final FileChannel channel;
+        final ByteBuffer buffer;
+        long count;//Boards written
+
+        RecordWriter(Path file, int bufferBytes) throws IOException {
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.WRITE);
+            buffer = ByteBuffer.allocate(bufferBytes / recordBytes * recordBytes);
+        }
+
+        void write(long[] source, int offset) throws IOException {
+            if (buffer.remaining() < recordBytes) {
+                flush();
+            }
+            for (int i = 0; i < words; i++) {
+                buffer.putLong(source[offset + i]);
+            }
+            count++;
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,216 @@
+/********************************************************************************
+//*******************************************************************************
+//Class:        FrontierSearch
+//Description:  This is the breadth-first frontier search mode of the tile
+//              puzzle solver. It has no closed list and only ever holds the
+//              layer being expanded and the layer being built. Each board
+//              keeps a bitmask of the moves that lead back into the layer
+//              before it (the moves already used to reach it). Those moves are
+//              never tried, so the search never steps back into boards it
+//              has dropped. Every move flips the blank's checkerboard colour,
+//              so a board's neighbors are all in the layers just before and
+//              after it.
+//
+//              Without parents the path is rebuilt by divide and conquer. A
+//              first pass finds the solution length. A second pass tags every
+//              board past the middle layer with its ancestor in that layer
+//              (the relay). The goal's relay splits the problem into two
+//              searches of half the depth, and so on down to single moves.
+**/
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+public class FrontierSearch {
+
+    // <editor-fold defaultstate="collapsed" desc="Global Variables">
+    private final PuzzleSolver solver;//The engine that receives the results
+    private PuzzleBoard probeBoard;//Scratch board for trying moves before copying
+    private int foundDepth;//Depth of the target in the last layered search
+    // </editor-fold>
+
+/*******************************************************************************
+//Method:       FrontierSearch
+//Description:  Sets up a frontier search for an engine's start state.
+//Parameters:   givenSolver     the engine holding the start and goal states
+//Returns:      Nothing
+//Calls:        Nothing
+//Globals:      solver
+**/
+    FrontierSearch(PuzzleSolver givenSolver) {
+        solver = givenSolver;
+    }
+
+/*******************************************************************************
+//Method:       search
+//Description:  Finds the solution length, then rebuilds the path by divide
+//              and conquer and hands it to the engine.
+//Parameters:   None
+//Returns:      Nothing
+//Calls:        searchLayers
+//              appendPath
+//              buildSolutionPath
+//Globals:      probeBoard
+//              foundDepth
+**/
+    void search() {
+        PuzzleBoard startBoard = solver.gameBoard.deepCopy();
+        startBoard.lastDirection = -1;
+        startBoard.depth = 0;
+        probeBoard = startBoard.deepCopy();
+        ArrayList<PuzzleBoard> states = new ArrayList<>();
+        states.add(startBoard);
+        if (!startBoard.equals(solver.goalBoard)) {
+            if (searchLayers(startBoard, solver.goalBoard, -1, Integer.MAX_VALUE) == null) {
+                reportFailure();
+                return;
+            }
+            solver.printProgress("Found the goal at depth " + foundDepth + "; rebuilding the path");
+            if (!appendPath(states, startBoard, solver.goalBoard, foundDepth)) {
+                reportFailure();
+                return;
+            }
+        }
+        buildSolutionPath(states);
+    }
+
+/*******************************************************************************
+//Method:       searchLayers
+//Description:  Runs a breadth-first frontier search from one board to another,
+//              holding two layers at a time. Boards from the relay depth on
+//              carry their ancestor at that depth.
+//Parameters:   from        the board to search from
+//              to          the board to search for
+//              relayDepth  the depth whose boards become relays (-1=none)
+//              maxDepth    the deepest layer to build
+//Returns:      Node        the target's node (its relay set), or null if it
+//                          was not reached or the budget ran out
+//Calls:        PuzzleSolver.oppositeDirection
+//Globals:      probeBoard
+//              foundDepth
+**/
+    private Node searchLayers(PuzzleBoard from, PuzzleBoard to, int relayDepth, int maxDepth) {
+        HashMap<PuzzleBoard, Node> layer = new HashMap<>();
+        PuzzleBoard first = from.deepCopy();
+        layer.put(first, new Node(relayDepth == 0 ? first : null));
+        for (int depth = 0; depth < maxDepth; depth++) {
+            HashMap<PuzzleBoard, Node> nextLayer = new HashMap<>(layer.size() * 2);
+            for (Map.Entry<PuzzleBoard, Node> entry : layer.entrySet()) {
+                PuzzleBoard curBoard = entry.getKey();
+                Node curNode = entry.getValue();
+                solver.nodesExpanded++;
+                for (int directionToMove = 0; directionToMove < 4; directionToMove++) {
+                    if (!curBoard.canMove(directionToMove) || (curNode.usedMoves & (1 << directionToMove)) != 0) {
+                        continue;
+                    }
+                    probeBoard.copyFrom(curBoard);
+                    probeBoard.moveTile(directionToMove);
+                    Node child = nextLayer.get(probeBoard);
+                    if (child == null) {
+                        PuzzleBoard tempBoard = probeBoard.deepCopy();
+                        solver.totalBoardsCreated++;
+                        child = new Node(depth + 1 == relayDepth ? tempBoard : curNode.relay);
+                        if (tempBoard.equals(to)) {
+                            foundDepth = depth + 1;
+                            return child;
+                        }
+                        nextLayer.put(tempBoard, child);
+                        //Stop once the two layers held would go over the memory budget
+                        if (solver.nodeLimit > 0 && layer.size() + nextLayer.size() > solver.nodeLimit) {
+                            solver.budgetExceeded = true;
+                            return null;
+                        }
+                    }
+                    child.usedMoves |= 1 << PuzzleSolver.oppositeDirection(directionToMove);
+                }
+            }
+            solver.peakOpenSize = Math.max(solver.peakOpenSize, layer.size() + nextLayer.size());
+            if (nextLayer.isEmpty()) {
+                return null;
+            }
+            layer = nextLayer;
+        }
+        return null;
+    }
+
+/*******************************************************************************
+//Method:       appendPath
+//Description:  Appends the boards after one board up to another on a shortest
+//              path between them, splitting the path at its middle relay.
+//Parameters:   states      the path so far (ends with from)
+//              from        the first board
+//              to          the last board
+//              length      the number of moves between them
+//Returns:      boolean     true=appended; false=the budget ran out
+//Calls:        searchLayers
+//              appendPath
+//Globals:      None
+**/
+    private boolean appendPath(ArrayList<PuzzleBoard> states, PuzzleBoard from, PuzzleBoard to, int length) {
+        if (length == 1) {
+            states.add(to);
+            return true;
+        }
+        int relayDepth = length / 2;
+        Node target = searchLayers(from, to, relayDepth, length);
+        if (target == null) {
+            return false;
+        }
+        PuzzleBoard relay = target.relay;
+        return appendPath(states, from, relay, relayDepth)
+                && appendPath(states, relay, to, length - relayDepth);
+    }
+
+/*******************************************************************************
+//Method:       buildSolutionPath
+//Description:  Replays the boards of the path from the start, so each one
+//              records its depth and the move that made it.
+//Parameters:   states      the boards of the path, start first
+//Returns:      Nothing
+//Calls:        Nothing
+//Globals:      probeBoard
+**/
+    private void buildSolutionPath(ArrayList<PuzzleBoard> states) {
+        PuzzleBoard current = states.get(0);
+        solver.solutionPath.addLast(current);
+        for (int i = 1; i < states.size(); i++) {
+            for (int directionToMove = 0; directionToMove < 4; directionToMove++) {
+                if (!current.canMove(directionToMove)) {
+                    continue;
+                }
+                probeBoard.copyFrom(current);
+                probeBoard.moveTile(directionToMove);
+                if (probeBoard.equals(states.get(i))) {
+                    current = probeBoard.deepCopy();
+                    current.depth = i;
+                    break;
+                }
+            }
+            solver.solutionPath.addLast(current);
+        }
+    }
+
+    private void reportFailure() {
+        if (solver.budgetExceeded) {
+            solver.printProgress("Stopped: the search went over its memory budget");
+        } else {
+            solver.printProgress("No solution: the start state cannot reach the goal state");
+        }
+    }
+
+/********************************************************************************
+//*******************************************************************************
+//Class:        Node
+//Description:  This class holds what a frontier board needs besides the board.
+**/
+    private static class Node {
+
+        int usedMoves;//Moves (1 << direction) that lead back to the layer before
+        final PuzzleBoard relay;//Ancestor at the relay depth (null before it)
+
+        Node(PuzzleBoard givenRelay) {
+            relay = givenRelay;
+        }
+    }
+}
@@ -0,0 +1,402 @@
+/********************************************************************************
+//*******************************************************************************
+//Class:        HashDistributedSearch
+//Description:  This is the hash-distributed parallel A* (HDA*) mode of the
+//              tile puzzle solver. Every board belongs to one worker, chosen
+//              by hashing its packed tiles, and each worker keeps its own open
+//              list and closed table for the boards it owns. A worker that
+//              generates a board owned by another worker buffers it, and
+//              sends it in a batch through the owner's lock-free mailbox.
+//
+//              A goal found by any worker becomes the shared incumbent. The
+//              search ends when no worker has a board under the incumbent's
+//              cost left and no batch is still in flight. A single counter of
+//              busy workers plus unread batches detects that: it only reaches
+//              zero when nothing can create more work.
+**/
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+public class HashDistributedSearch {
+
+    // <editor-fold defaultstate="collapsed" desc="Global Variables">
+    static final int BATCH_SIZE = 64;//Boards sent to another worker at once
+    private static final int FLUSH_INTERVAL = 256;//Expansions between flushes of partial batches
+    private static final long IDLE_WAIT_NANOS = 20000;//Pause while waiting for a batch
+
+    //Lowest f-value first, deepest first on ties (as the bucket queue does)
+    private static final Comparator<Node> BEST_FIRST = new Comparator<Node>() {
+        @Override
+        public int compare(Node first, Node second) {
+            if (first.board.totalScore != second.board.totalScore) {
+                return Integer.compare(first.board.totalScore, second.board.totalScore);
+            }
+            return Integer.compare(second.board.depth, first.board.depth);
+        }
+    };
+
+    private final PuzzleSolver solver;//The engine that receives the results
+    private final Worker[] workers;//One worker per hash partition
+    private final AtomicInteger outstanding = new AtomicInteger();//Busy workers plus unread batches
+    private final AtomicInteger incumbentCost = new AtomicInteger(Integer.MAX_VALUE);//Cheapest goal found
+    private final AtomicLong storedNodes = new AtomicLong();//Boards held by all workers
+    private final AtomicInteger openNodes = new AtomicInteger();//Entries in all the workers' open lists
+    private final AtomicInteger peakOpenNodes = new AtomicInteger();//Largest openNodes reached
+    private volatile Node incumbent;//The cheapest goal found
+    private volatile boolean stopped;//Set when the memory budget is exceeded
+    // </editor-fold>
+
+/*******************************************************************************
+//Method:       HashDistributedSearch
+//Description:  Sets up the workers for an engine's start state.
+//Parameters:   givenSolver     the engine holding the start and goal states
+//              workerCount     the number of workers (and hash partitions)
+//Returns:      Nothing
+//Calls:        Nothing
+//Globals:      solver
+//              workers
+**/
+    HashDistributedSearch(PuzzleSolver givenSolver, int workerCount) {
+        solver = givenSolver;
+        workers = new Worker[workerCount];
+        for (int i = 0; i < workerCount; i++) {
+            workers[i] = new Worker(i);
+        }
+    }
+
+/*******************************************************************************
+//Method:       search
+//Description:  Runs the workers to termination and hands the optimal path and
+//              the counters back to the engine.
+//Parameters:   None
+//Returns:      Nothing
+//Calls:        ownerOf
+//              Worker.receive
+//Globals:      workers
+//              outstanding
+//              incumbent
+//              peakOpenNodes
+**/
+    void search() {
+        PuzzleBoard startBoard = solver.gameBoard.deepCopy();
+        startBoard.lastDirection = -1;
+        startBoard.depth = 0;
+        startBoard.calculateHeuristic(solver.goalBoard, solver.searchMode, solver.heuristicMode, 0, true);
+        workers[ownerOf(startBoard)].receive(new Node(startBoard, null));
+        //Every worker starts busy and counts itself out when it runs dry
+        outstanding.set(workers.length);
+        Thread[] threads = new Thread[workers.length];
+        for (int i = 0; i < workers.length; i++) {
+            threads[i] = new Thread(workers[i], "hda-worker-" + i);
+            threads[i].start();
+        }
+        try {
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            stopped = true;
+        }
+        for (Worker worker : workers) {
+            solver.nodesExpanded += worker.expanded;
+            solver.searchClosedSize += worker.closed.size();
+        }
+        solver.peakOpenSize = peakOpenNodes.get();
+        if (stopped) {
+            solver.budgetExceeded = true;
+            solver.printProgress("Stopped: the search went over its memory budget");
+            return;
+        }
+        for (Node node = incumbent; node != null; node = node.parent) {
+            solver.solutionPath.push(node.board);
+        }
+    }
+
+/*******************************************************************************
+//Method:       ownerOf
+//Description:  Gets the worker that owns a board, by hashing its tiles.
+//Parameters:   board       the board
+//Returns:      int         the index of the owning worker
+//Calls:        PuzzleBoard.hashCode
+//Globals:      workers
+**/
+    private int ownerOf(PuzzleBoard board) {
+        int mixed = board.hashCode() * 0x9E3779B9;
+        return ((mixed >>> 8) & Integer.MAX_VALUE) % workers.length;
+    }
+
+/*******************************************************************************
+//Method:       recordGoal
+//Description:  Makes a goal the incumbent if it is cheaper than the current
+//              one.
+//Parameters:   goal        the goal node
+//Returns:      Nothing
+//Calls:        Nothing
+//Globals:      incumbent
+//              incumbentCost
+**/
+    private synchronized void recordGoal(Node goal) {
+        if (goal.board.depth < incumbentCost.get()) {
+            incumbent = goal;
+            incumbentCost.set(goal.board.depth);
+        }
+    }
+
+/********************************************************************************
+//*******************************************************************************
+//Class:        Node
+//Description:  This class links a board to the node it was generated from.
+//              Nodes are never changed once sent, so the path can be followed
+//              across workers after the search.
+**/
+    private static class Node {
+
+        final PuzzleBoard board;
+        final Node parent;
+
+        Node(PuzzleBoard givenBoard, Node givenParent) {
+            board = givenBoard;
+            parent = givenParent;
+        }
+    }
+
+/********************************************************************************
+//*******************************************************************************
+//Class:        Worker
+//Description:  This class runs A* over one hash partition of the boards.
+**/
+    private class Worker implements Runnable {
+
+        private final int index;//This worker's partition
+        private final PriorityQueue<Node> open = new PriorityQueue<>(1024, BEST_FIRST);//Owned boards to expand
+        private final HashMap<PuzzleBoard, Node> closed = new HashMap<>();//Cheapest node seen per owned board
+        private final ConcurrentLinkedQueue<Node[]> mailbox = new ConcurrentLinkedQueue<>();//Batches from others
+        private final Node[][] outgoing;//Partial batch for each other worker
+        private final int[] outgoingSizes;//Number of nodes in each partial batch
+        private long expanded;//Nodes this worker expanded
+
+        Worker(int givenIndex) {
+            index = givenIndex;
+            outgoing = new Node[workers.length][BATCH_SIZE];
+            outgoingSizes = new int[workers.length];
+        }
+
+        @Override
+        public void run() {
+            while (!stopped) {
+                readMailbox();
+                Node node = nextNode();
+                if (node == null) {
+                    flushAll();
+                    if (!waitForWork()) {
+                        return;
+                    }
+                } else if (node.board.equals(solver.goalBoard)) {
+                    recordGoal(node);
+                } else {
+                    expand(node);
+                    if (expanded % FLUSH_INTERVAL == 0) {
+                        flushAll();
+                    }
+                }
+            }
+        }
+
+/*******************************************************************************
+//Method:       nextNode
+//Description:  Pulls the best open node that is still current and cheaper
+//              than the incumbent.
+//Parameters:   None
+//Returns:      Node        the node, or null when none is left worth expanding
+//Calls:        Nothing
+//Globals:      open
+//              closed
+//              incumbentCost
+//              openNodes
+**/
+        private Node nextNode() {
+            while (!open.isEmpty()) {
+                Node node = open.peek();
+                if (node.board.totalScore >= incumbentCost.get()) {
+                    return null;
+                }
+                open.poll();
+                openNodes.decrementAndGet();
+                //Skip nodes a cheaper path to the same board has replaced
+                if (closed.get(node.board) == node) {
+                    return node;
+                }
+            }
+            return null;
+        }
+
+/*******************************************************************************
+//Method:       expand
+//Description:  Generates the children of a node and routes each to its owner.
+//Parameters:   node        the node to expand
+//Returns:      Nothing
+//Calls:        ownerOf
+//              receive
+//              send
+//Globals:      outgoing
+//              outgoingSizes
+**/
+        private void expand(Node node) {
+            expanded++;
+            PuzzleBoard board = node.board;
+            for (int direction = 0; direction < 4; direction++) {
+                if (!board.canMove(direction)
+                        || direction == PuzzleSolver.oppositeDirection(board.lastDirection)) {
+                    continue;
+                }
+                PuzzleBoard child = board.deepCopy();
+                child.moveTile(direction);
+                child.depth = board.depth + 1;
+                child.calculateHeuristic(solver.goalBoard, solver.searchMode, solver.heuristicMode, 0, true);
+                if (child.totalScore >= incumbentCost.get()) {
+                    continue;
+                }
+                Node childNode = new Node(child, node);
+                int owner = ownerOf(child);
+                if (owner == index) {
+                    receive(childNode);
+                } else {
+                    outgoing[owner][outgoingSizes[owner]++] = childNode;
+                    if (outgoingSizes[owner] == BATCH_SIZE) {
+                        send(owner);
+                    }
+                }
+            }
+        }
+
+/*******************************************************************************
+//Method:       receive
+//Description:  Adds a node for an owned board unless a path at least as
+//              short is already known. A shorter path reopens the board.
+//Parameters:   node        the node
+//Returns:      Nothing
+//Calls:        Nothing
+//Globals:      open
+//              closed
+//              storedNodes
+//              openNodes
+//              peakOpenNodes
+//              stopped
+**/
+        void receive(Node node) {
+            Node known = closed.get(node.board);
+            if (known != null && known.board.depth <= node.board.depth) {
+                return;
+            }
+            closed.put(node.board, node);
+            open.add(node);
+            int openCount = openNodes.incrementAndGet();
+            int peak = peakOpenNodes.get();
+            while (openCount > peak && !peakOpenNodes.compareAndSet(peak, openCount)) {
+                peak = peakOpenNodes.get();
+            }
+            if (known == null) {
+                long stored = storedNodes.incrementAndGet();
+                if (solver.nodeLimit > 0 && stored > solver.nodeLimit) {
+                    stopped = true;
+                }
+            }
+        }
+
+/*******************************************************************************
+//Method:       send
+//Description:  Posts the partial batch for a worker to its mailbox. The batch
+//              is counted before it is posted, so the count never shows the
+//              search as finished while the batch is unread.
+//Parameters:   owner       the receiving worker
+//Returns:      Nothing
+//Calls:        Nothing
+//Globals:      outgoing
+//              outgoingSizes
+//              outstanding
+**/
+        private void send(int owner) {
+            Node[] batch = outgoing[owner];
+            if (outgoingSizes[owner] < BATCH_SIZE) {
+                Node[] partial = new Node[outgoingSizes[owner]];
+                System.arraycopy(batch, 0, partial, 0, partial.length);
+                batch = partial;
+            }
+            outgoing[owner] = new Node[BATCH_SIZE];
+            outgoingSizes[owner] = 0;
+            outstanding.incrementAndGet();
+            workers[owner].mailbox.offer(batch);
+        }
+
+/*******************************************************************************
+//Method:       flushAll
+//Description:  Sends every non-empty partial batch.
+//Parameters:   None
+//Returns:      Nothing
+//Calls:        send
+//Globals:      outgoingSizes
+**/
+        private void flushAll() {
+            for (int owner = 0; owner < workers.length; owner++) {
+                if (outgoingSizes[owner] > 0) {
+                    send(owner);
+                }
+            }
+        }
+
+/*******************************************************************************
+//Method:       readMailbox
+//Description:  Adds the nodes of every waiting batch, counting each batch
+//              off once it has been read.
+//Parameters:   None
+//Returns:      Nothing
+//Calls:        receive
+//Globals:      mailbox
+//              outstanding
+**/
+        private void readMailbox() {
+            Node[] batch;
+            while ((batch = mailbox.poll()) != null) {
+                for (Node node : batch) {
+                    receive(node);
+                }
+                outstanding.decrementAndGet();
+            }
+        }
+
+/*******************************************************************************
+//Method:       waitForWork
+//Description:  Counts this worker out as idle and waits for a batch. The
+//              count only reaches zero when every worker is idle and no batch
+//              is unread, and nothing can raise it again after that.
+//Parameters:   None
+//Returns:      boolean     true=a batch arrived; false=the search is over
+//Calls:        Nothing
+//Globals:      mailbox
+//              outstanding
+//              stopped
+**/
+        private boolean waitForWork() {
+            outstanding.decrementAndGet();
+            while (!stopped) {
+                if (!mailbox.isEmpty()) {
+                    //The unread batch is still counted, so this cannot revive a finished search
+                    outstanding.incrementAndGet();
+                    return true;
+                }
+                if (outstanding.get() == 0) {
+                    return false;
+                }
+                LockSupport.parkNanos(IDLE_WAIT_NANOS);
+            }
+            return false;
+        }
+    }
+}
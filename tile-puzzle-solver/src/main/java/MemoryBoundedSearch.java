@@ -0,0 +1,265 @@
+/********************************************************************************
+//*******************************************************************************
+//Class:        MemoryBoundedSearch
+//Description:  This is the memory-bounded A* mode of the tile puzzle solver,
+//              in the style of simplified SMA*. It searches the tree of moves
+//              best-first like A*, but never holds more boards than the
+//              engine's node limit. When the limit is reached, the leaf with
+//              the highest key is dropped. Its parent remembers the move to it
+//              and keeps its f-value. A parent that forgot children waits on
+//              the frontier, keyed by the best f-value it forgot. When it
+//              comes up again, it regenerates just those children.
+//
+//              Every key stays a lower bound on the solution length through
+//              its boards, and every forgotten key is still on the frontier.
+//              So the first goal pulled from the frontier is still optimal.
+//              The search only re-expands some boards, and it never runs out
+//              of memory.
+**/
+
+import java.util.Comparator;
+import java.util.TreeSet;
+
+public class MemoryBoundedSearch {
+
+    // <editor-fold defaultstate="collapsed" desc="Global Variables">
+    static final long MIN_NODE_LIMIT = 4096;//Fewest boards the search works with
+    private static final int ALL_MOVES = 0xF;//Move mask with every direction
+
+    //Lowest key first, deepest first on ties; entries at the end are dropped first
+    private static final Comparator<Node> BEST_FIRST = new Comparator<Node>() {
+        @Override
+        public int compare(Node first, Node second) {
+            if (first.key != second.key) {
+                return Integer.compare(first.key, second.key);
+            }
+            if (first.board.depth != second.board.depth) {
+                return Integer.compare(second.board.depth, first.board.depth);
+            }
+            return Long.compare(first.id, second.id);
+        }
+    };
+
+    private final PuzzleSolver solver;//The engine that receives the results
+    private final long nodeLimit;//Most boards held at once
+    private final TreeSet<Node> frontier = new TreeSet<>(BEST_FIRST);//Leaves and parents with forgotten children
+    private final TreeSet<Node> leaves = new TreeSet<>(BEST_FIRST);//Frontier entries with no children held (the ones to drop)
+    private long storedNodes;//Boards in memory (leaves and their ancestors)
+    private long peakStoredNodes;//Most boards held after dropping leaves
+    private long nextId;//Tie-breaker that keeps frontier entries distinct
+    private long prunedNodes;//Leaves dropped to stay inside the limit
+    // </editor-fold>
+
+/*******************************************************************************
+//Method:       MemoryBoundedSearch
+//Description:  Sets up a memory-bounded search for an engine's start state.
+//Parameters:   givenSolver     the engine holding the start state and limit
+//Returns:      Nothing
+//Calls:        Nothing
+//Globals:      solver
+//              nodeLimit
+**/
+    MemoryBoundedSearch(PuzzleSolver givenSolver) {
+        solver = givenSolver;
+        long limit = givenSolver.nodeLimit > 0 ? givenSolver.nodeLimit
+                : Runtime.getRuntime().maxMemory() / 2 / PuzzleSolver.BYTES_PER_NODE;
+        nodeLimit = Math.max(MIN_NODE_LIMIT, limit);
+    }
+
+/*******************************************************************************
+//Method:       search
+//Description:  Pulls the entry with the lowest key until it is the goal,
+//              dropping the worst leaves whenever the tree outgrows the limit.
+//Parameters:   None
+//Returns:      Nothing
+//Calls:        expand
+//              removeDeadEnd
+//              pruneWorstLeaf
+//Globals:      frontier
+//              storedNodes
+//              peakStoredNodes
+**/
+    void search() {
+        PuzzleBoard startBoard = solver.gameBoard.deepCopy();
+        startBoard.lastDirection = -1;
+        startBoard.depth = 0;
+        Node root = new Node(startBoard, null, PuzzleHeuristics.estimate(startBoard, solver.heuristicMode),
+                MovePruningMachine.START);
+        frontier.add(root);
+        root.inFrontier = true;
+        storedNodes = 1;
+        while (true) {
+            Node best = frontier.pollFirst();
+            if (best == null) {
+                solver.unsolvable = true;
+                solver.printProgress("No solution: the start state cannot reach the goal state");
+                return;
+            }
+            best.inFrontier = false;
+            leaves.remove(best);
+            if (!best.expanded && best.board.equals(solver.goalBoard)) {
+                solver.printProgress("Dropped " + prunedNodes + " boards to stay within " + nodeLimit
+                        + " (at most " + peakStoredNodes + " held)");
+                for (Node node = best; node != null; node = node.parent) {
+                    node.board.rawScore = PuzzleHeuristics.estimate(node.board, solver.heuristicMode);
+                    node.board.totalScore = node.board.depth + node.board.rawScore;
+                    solver.solutionPath.push(node.board);
+                }
+                return;
+            }
+            expand(best);
+            removeDeadEnd(best);
+            while (storedNodes > nodeLimit && pruneWorstLeaf()) {
+                prunedNodes++;
+            }
+            //Every held board is a leaf or on the path to one, so this only trips on a bookkeeping bug
+            if (storedNodes > nodeLimit) {
+                solver.budgetExceeded = true;
+                solver.printProgress("Stopped: " + storedNodes + " boards held and none can be dropped");
+                return;
+            }
+            peakStoredNodes = Math.max(peakStoredNodes, storedNodes);
+            solver.peakOpenSize = Math.max(solver.peakOpenSize, frontier.size());
+        }
+    }
+
+/*******************************************************************************
+//Method:       expand
+//Description:  Generates the children of a board: all of them (except the
+//              moves the move pruning machine rules out) the first time, or just the forgotten ones after
+//              that. A child's f-value is at least its parent's key (pathmax),
+//              so the value forgotten for it is not lost.
+//Parameters:   node        the board to expand
+//Returns:      Nothing
+//Calls:        PuzzleHeuristics.estimate
+//Globals:      frontier
+//              storedNodes
+**/
+    private void expand(Node node) {
+        PuzzleBoard board = node.board;
+        int moves = node.expanded ? node.forgottenMoves : ALL_MOVES;
+        int parentKey = node.key;
+        node.expanded = true;
+        node.forgottenMoves = 0;
+        node.forgottenF = Integer.MAX_VALUE;
+        solver.nodesExpanded++;
+        for (int directionToMove = 0; directionToMove < 4; directionToMove++) {
+            int childState = solver.moveMachine.next(node.machineState, directionToMove);
+            if ((moves & (1 << directionToMove)) == 0 || !board.canMove(directionToMove)
+                    || childState == MovePruningMachine.PRUNED) {
+                continue;
+            }
+            PuzzleBoard child = board.deepCopy();
+            child.moveTile(directionToMove);
+            child.depth = board.depth + 1;
+            solver.totalBoardsCreated++;
+            int estimate = child.depth + PuzzleHeuristics.estimate(child, solver.heuristicMode);
+            Node childNode = new Node(child, node, Math.max(parentKey, estimate), childState);
+            childNode.inFrontier = true;
+            frontier.add(childNode);
+            leaves.add(childNode);
+            node.childrenInMemory++;
+            storedNodes++;
+        }
+    }
+
+/*******************************************************************************
+//Method:       removeDeadEnd
+//Description:  Frees a board that was expanded but has no children held and
+//              none forgotten (every move was blocked or pruned). Its parent
+//              remembers nothing for the move, so the move counts as f =
+//              infinity. A parent left with no children becomes a leaf, or a
+//              dead end itself if it forgot none either.
+//Parameters:   node        the board just expanded
+//Returns:      Nothing
+//Calls:        Nothing
+//Globals:      leaves
+//              storedNodes
+**/
+    private void removeDeadEnd(Node node) {
+        while (node.childrenInMemory == 0 && node.forgottenMoves == 0) {
+            storedNodes--;
+            Node parent = node.parent;
+            if (parent == null) {
+                return;
+            }
+            parent.childrenInMemory--;
+            if (parent.childrenInMemory > 0) {
+                return;
+            }
+            //A parent with forgotten moves is already on the frontier under its forgotten key
+            if (parent.forgottenMoves != 0) {
+                if (parent.parent != null) {
+                    leaves.add(parent);
+                }
+                return;
+            }
+            node = parent;
+        }
+    }
+
+/*******************************************************************************
+//Method:       pruneWorstLeaf
+//Description:  Drops the leaf with the highest key. Its parent remembers the
+//              move to it and goes (back) onto the frontier, keyed by the
+//              best f-value it forgot.
+//Parameters:   None
+//Returns:      boolean     true=a leaf was dropped; false=none can be
+//Calls:        Nothing
+//Globals:      frontier
+//              leaves
+//              storedNodes
+**/
+    private boolean pruneWorstLeaf() {
+        Node worst = leaves.pollLast();
+        if (worst == null) {
+            return false;
+        }
+        frontier.remove(worst);
+        worst.inFrontier = false;
+        Node parent = worst.parent;
+        //Take the parent out before its key changes, or the sets lose track of it
+        if (parent.inFrontier) {
+            frontier.remove(parent);
+            leaves.remove(parent);
+        }
+        parent.forgottenMoves |= 1 << worst.board.lastDirection;
+        parent.forgottenF = Math.min(parent.forgottenF, worst.key);
+        parent.key = parent.forgottenF;
+        parent.id = nextId++;
+        parent.childrenInMemory--;
+        parent.inFrontier = true;
+        frontier.add(parent);
+        if (parent.childrenInMemory == 0 && parent.parent != null) {
+            leaves.add(parent);
+        }
+        storedNodes--;
+        return true;
+    }
+
+/********************************************************************************
+//*******************************************************************************
+//Class:        Node
+//Description:  This class is one board of the search tree in memory.
+**/
+    private class Node {
+
+        final PuzzleBoard board;
+        final Node parent;
+        int key;//Frontier key: the f-value, or the best forgotten one once expanded
+        boolean expanded;//Whether the children were generated
+        boolean inFrontier;//Whether the node is in the frontier
+        int forgottenMoves;//Moves (1 << direction) to the dropped children
+        int forgottenF = Integer.MAX_VALUE;//Lowest f-value of the dropped children
+        int childrenInMemory;//Children still held
+        long id = nextId++;//Tie-breaker for the frontier order
+        final int machineState;//Move pruning state of the path to the board
+
+        Node(PuzzleBoard givenBoard, Node givenParent, int givenKey, int givenMachineState) {
+            board = givenBoard;
+            parent = givenParent;
+            key = givenKey;
+            machineState = givenMachineState;
+        }
+    }
+}
@@ -0,0 +1,443 @@
+/********************************************************************************
+//*******************************************************************************
+//Class:        MovePruningMachine
+//Description:  This is the duplicate-pruning finite-state machine used by the
+//              tree searches of the tile puzzle solver. Depth-first searches
+//              have no closed list, so they generate the same board again
+//              and again through equivalent move sequences. Undoing the last
+//              move is the simplest case. Another is circling the blank
+//              around a 2x2 block one way instead of the other.
+//
+//              The machine is built by a breadth-first search over move
+//              strings (blank moves) on a board large enough that every
+//              string is legal. Two strings are equivalent when they leave
+//              the same tiles in the same cells. A string is pruned when an
+//              equivalent one comes first: shorter, or the same length and
+//              earlier in direction order. That one must also keep the blank
+//              inside the first string's bounding box, so it is legal
+//              wherever the first is. The lowest-ordered optimal solution
+//              never contains a pruned string, so the searches stay optimal.
+//
+//              The pruned strings are compiled into an Aho-Corasick automaton.
+//              A search keeps one small state number per path and looks up
+//              next(state, direction) before each move. That costs no memory
+//              per board. Comparing strings up to 12 moves takes a few
+//              seconds and gives about 12,000 states, so the machine is built
+//              offline and shipped as the resource move-pruning-12.fsm.gz.
+//              It is only built at run time if that resource is missing.
+//
+//              Print the machine's size, or write the resource, with:
+//                  java MovePruningMachine [maxLength [outputFile]]
+//
+//              File layout (gzipped, big-endian): int magic, int longest
+//              string, int redundant strings, int states, then 4 ints per
+//              state (the next state by direction).
+**/
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+public class MovePruningMachine {
+
+    // <editor-fold defaultstate="collapsed" desc="Global Variables">
+    static final int START = 0;//State of the empty path
+    static final int PRUNED = -1;//next() result for a move that makes a redundant string
+    static final int DEFAULT_MAX_LENGTH = 12;//Longest move strings compared when building
+    private static final int MAX_LENGTH = 24;//Longest move strings a long can hold with their length
+    private static final int MAGIC = 0x46534D31;//"FSM1"
+    private static final String RESOURCE_NAME = "/move-pruning-" + DEFAULT_MAX_LENGTH + ".fsm.gz";
+    private static final int[] ROW_STEP = {-1, 0, 1, 0};//Blank row change by direction
+    private static final int[] COL_STEP = {0, 1, 0, -1};//Blank column change by direction
+    private static MovePruningMachine loaded;//The full machine once built
+    private static MovePruningMachine reversalsOnly;//The machine that only prunes undoing the last move
+
+    private final int[] transitions;//Next state by state * 4 + direction (PRUNED=redundant)
+    private final int prunedStrings;//Redundant strings the machine was built from
+    // </editor-fold>
+
+/*******************************************************************************
+//Method:       MovePruningMachine
+//Description:  Wraps a filled transition table.
+//Parameters:   givenTransitions    the next state by state * 4 + direction
+//              givenPrunedStrings  the number of redundant strings
+//Returns:      Nothing
+//Calls:        Nothing
+//Globals:      transitions
+//              prunedStrings
+**/
+    private MovePruningMachine(int[] givenTransitions, int givenPrunedStrings) {
+        transitions = givenTransitions;
+        prunedStrings = givenPrunedStrings;
+    }
+
+/*******************************************************************************
+//Method:       main
+//Description:  Builds a machine and prints its size, then writes it to a
+//              file if one is given.
+//Parameters:   args        optional longest move string to compare and
+//                          output file
+//Returns:      Nothing
+//Calls:        build
+//              writeMachine
+//Globals:      None
+**/
+    public static void main(String[] args) throws IOException {
+        int maxLength = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_MAX_LENGTH;
+        long startTime = System.nanoTime();
+        MovePruningMachine machine = build(maxLength);
+        System.out.println("Move strings up to " + maxLength + " moves: " + machine.prunedStrings
+                + " redundant strings, " + machine.getStateCount() + " states, built in "
+                + (System.nanoTime() - startTime) / 1000000 + " ms");
+        if (args.length > 1) {
+            writeMachine(new File(args[1]), maxLength, machine);
+        }
+    }
+
+/*******************************************************************************
+//Method:       load
+//Description:  Gets the machine, reading the shipped resource on first use,
+//              or building it if the resource is missing or damaged.
+//Parameters:   pruneAll    true=the full machine; false=only prune undoing
+//                          the last move
+//Returns:      MovePruningMachine  the machine
+//Calls:        build
+//              readMachine
+//Globals:      loaded
+//              reversalsOnly
+**/
+    static synchronized MovePruningMachine load(boolean pruneAll) {
+        if (!pruneAll) {
+            if (reversalsOnly == null) {
+                reversalsOnly = build(2);
+            }
+            return reversalsOnly;
+        }
+        if (loaded != null) {
+            return loaded;
+        }
+        InputStream resource = MovePruningMachine.class.getResourceAsStream(RESOURCE_NAME);
+        if (resource != null) {
+            try {
+                loaded = readMachine(resource);
+            } catch (IOException e) {
+                loaded = null;
+            }
+        }
+        if (loaded == null) {
+            loaded = build(DEFAULT_MAX_LENGTH);
+        }
+        return loaded;
+    }
+
+/*******************************************************************************
+//Method:       next
+//Description:  Steps the machine along a move.
+//Parameters:   state       the state of the path so far
+//              direction   0=up; 1=right; 2=down; 3=left
+//Returns:      int         the state after the move, or PRUNED
+//Calls:        Nothing
+//Globals:      transitions
+**/
+    int next(int state, int direction) {
+        return transitions[(state << 2) + direction];
+    }
+
+    int getStateCount() {
+        return transitions.length / 4;
+    }
+
+/*******************************************************************************
+//Method:       build
+//Description:  Finds the redundant move strings up to a length and compiles
+//              them into a machine. Only strings with no redundant part are
+//              extended, so every redundant string found is minimal.
+//Parameters:   maxLength   the longest move string to compare
+//Returns:      MovePruningMachine  the machine
+//Calls:        describeString
+//              containsPrunedSuffix
+//              compile
+//Globals:      None
+**/
+    static MovePruningMachine build(int maxLength) {
+        if (maxLength < 2 || maxLength > MAX_LENGTH) {
+            throw new IllegalArgumentException("The longest move string must be 2 to " + MAX_LENGTH);
+        }
+        int side = 2 * maxLength + 1;
+        int[] grid = new int[side * side];
+        for (int cell = 0; cell < grid.length; cell++) {
+            grid[cell] = cell;
+        }
+        //Boards reached so far, each with the bounding boxes of the strings kept for it
+        HashMap<String, ArrayList<int[]>> reached = new HashMap<>();
+        HashSet<Long> pruned = new HashSet<>();
+        ArrayList<long[]> prunedList = new ArrayList<>();
+        long[] layer = {0L};
+        int[] box = new int[4];
+        for (int length = 0; length <= maxLength; length++) {
+            long[] nextLayer = new long[length < maxLength ? layer.length * 4 : 0];
+            int nextCount = 0;
+            //Strings come in direction order, so an earlier equivalent is seen first
+            for (long moves : layer) {
+                String key = describeString(moves, length, grid, side, box);
+                ArrayList<int[]> kept = reached.get(key);
+                if (kept == null) {
+                    kept = new ArrayList<>();
+                    reached.put(key, kept);
+                }
+                if (isInsideAny(kept, box)) {
+                    pruned.add(encode(moves, length));
+                    prunedList.add(new long[]{moves, length});
+                    continue;
+                }
+                kept.add(box.clone());
+                if (length == maxLength) {
+                    continue;
+                }
+                for (int direction = 0; direction < 4; direction++) {
+                    long child = moves | ((long) direction << (2 * length));
+                    if (!containsPrunedSuffix(child, length + 1, pruned)) {
+                        nextLayer[nextCount++] = child;
+                    }
+                }
+            }
+            layer = Arrays.copyOf(nextLayer, nextCount);
+        }
+        return compile(prunedList);
+    }
+
+/*******************************************************************************
+//Method:       describeString
+//Description:  Plays a move string from the middle of the grid and describes
+//              where it leaves the tiles, then puts the grid back.
+//Parameters:   moves       the moves, 2 bits each, first move lowest
+//              length      the number of moves
+//              grid        the tile in each cell (each cell's own number)
+//              side        the grid side length
+//              box         filled with the blank's lowest and highest row
+//                          and column offsets
+//Returns:      String      the same text for equivalent strings
+//Calls:        Nothing
+//Globals:      ROW_STEP
+//              COL_STEP
+**/
+    private static String describeString(long moves, int length, int[] grid, int side, int[] box) {
+        int center = side / 2;
+        int row = center;
+        int col = center;
+        int[] visited = new int[length + 1];
+        visited[0] = center * side + center;
+        Arrays.fill(box, 0);
+        for (int i = 0; i < length; i++) {
+            int direction = (int) (moves >>> (2 * i)) & 3;
+            int from = row * side + col;
+            row += ROW_STEP[direction];
+            col += COL_STEP[direction];
+            int to = row * side + col;
+            grid[from] = grid[to];
+            grid[to] = visited[0];
+            visited[i + 1] = to;
+            box[0] = Math.min(box[0], row - center);
+            box[1] = Math.max(box[1], row - center);
+            box[2] = Math.min(box[2], col - center);
+            box[3] = Math.max(box[3], col - center);
+        }
+        int[] cells = visited.clone();
+        Arrays.sort(cells);
+        StringBuilder key = new StringBuilder();
+        key.append((char) (row * side + col));
+        for (int i = 0; i < cells.length; i++) {
+            int cell = cells[i];
+            if ((i == 0 || cell != cells[i - 1]) && grid[cell] != cell) {
+                key.append((char) cell).append((char) grid[cell]);
+            }
+        }
+        for (int cell : cells) {
+            grid[cell] = cell;
+        }
+        return key.toString();
+    }
+
+    private static boolean isInsideAny(ArrayList<int[]> boxes, int[] box) {
+        for (int[] other : boxes) {
+            if (other[0] >= box[0] && other[1] <= box[1] && other[2] >= box[2] && other[3] <= box[3]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+/*******************************************************************************
+//Method:       containsPrunedSuffix
+//Description:  Checks whether a string ends with a shorter redundant string.
+//              Its other parts were already checked when it was extended.
+//Parameters:   moves       the moves, 2 bits each, first move lowest
+//              length      the number of moves
+//              pruned      the redundant strings found so far
+//Returns:      boolean     true=the string contains a redundant string
+//Calls:        encode
+//Globals:      None
+**/
+    private static boolean containsPrunedSuffix(long moves, int length, HashSet<Long> pruned) {
+        for (int start = 1; start < length - 1; start++) {
+            if (pruned.contains(encode(moves >>> (2 * start), length - start))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static long encode(long moves, int length) {
+        return ((long) length << 56) | (moves & ((1L << (2 * length)) - 1));
+    }
+
+/*******************************************************************************
+//Method:       compile
+//Description:  Builds the Aho-Corasick automaton of the redundant strings: a
+//              trie of their prefixes with fall-back links, where a state
+//              ending any redundant string becomes PRUNED. The live states are
+//              renumbered so the table has no gaps.
+//Parameters:   prunedList  the redundant strings as {moves, length}
+//Returns:      MovePruningMachine  the machine
+//Calls:        Nothing
+//Globals:      None
+**/
+    private static MovePruningMachine compile(ArrayList<long[]> prunedList) {
+        //Trie of every prefix of the redundant strings
+        ArrayList<int[]> children = new ArrayList<>();
+        ArrayList<Boolean> ending = new ArrayList<>();
+        children.add(new int[]{-1, -1, -1, -1});
+        ending.add(false);
+        for (long[] string : prunedList) {
+            int node = 0;
+            for (int i = 0; i < string[1]; i++) {
+                int direction = (int) (string[0] >>> (2 * i)) & 3;
+                if (children.get(node)[direction] < 0) {
+                    children.get(node)[direction] = children.size();
+                    children.add(new int[]{-1, -1, -1, -1});
+                    ending.add(false);
+                }
+                node = children.get(node)[direction];
+            }
+            ending.set(node, true);
+        }
+        //Breadth-first over the trie: fill in every missing move from the fall-back state
+        int nodeCount = children.size();
+        int[] fallBack = new int[nodeCount];
+        boolean[] dead = new boolean[nodeCount];
+        int[] order = new int[nodeCount];
+        int orderCount = 0;
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int direction = 0; direction < 4; direction++) {
+            int child = children.get(0)[direction];
+            if (child < 0) {
+                children.get(0)[direction] = 0;
+            } else {
+                fallBack[child] = 0;
+                queue.add(child);
+            }
+        }
+        order[orderCount++] = 0;
+        while (!queue.isEmpty()) {
+            int node = queue.poll();
+            order[orderCount++] = node;
+            dead[node] = ending.get(node) || dead[fallBack[node]];
+            for (int direction = 0; direction < 4; direction++) {
+                int child = children.get(node)[direction];
+                if (child < 0) {
+                    children.get(node)[direction] = children.get(fallBack[node])[direction];
+                } else {
+                    fallBack[child] = children.get(fallBack[node])[direction];
+                    queue.add(child);
+                }
+            }
+        }
+        int[] number = new int[nodeCount];
+        int liveCount = 0;
+        for (int i = 0; i < orderCount; i++) {
+            number[order[i]] = dead[order[i]] ? PRUNED : liveCount++;
+        }
+        int[] transitions = new int[liveCount * 4];
+        for (int node = 0; node < nodeCount; node++) {
+            if (number[node] == PRUNED) {
+                continue;
+            }
+            for (int direction = 0; direction < 4; direction++) {
+                transitions[(number[node] << 2) + direction] = number[children.get(node)[direction]];
+            }
+        }
+        return new MovePruningMachine(transitions, prunedList.size());
+    }
+
+/*******************************************************************************
+//Method:       readMachine
+//Description:  Reads a saved machine and closes the stream.
+//Parameters:   stream      the gzipped machine file
+//Returns:      MovePruningMachine  the machine
+//Calls:        Nothing
+//Globals:      None
+**/
+    private static MovePruningMachine readMachine(InputStream stream) throws IOException {
+        try (DataInputStream input = new DataInputStream(
+                new BufferedInputStream(new GZIPInputStream(stream), 1 << 16))) {
+            if (input.readInt() != MAGIC || input.readInt() != DEFAULT_MAX_LENGTH) {
+                throw new IOException("bad machine file");
+            }
+            int prunedStrings = input.readInt();
+            int stateCount = input.readInt();
+            if (stateCount <= 0 || stateCount > (Integer.MAX_VALUE - 8) / 4) {
+                throw new IOException("bad machine file");
+            }
+            int[] transitions = new int[stateCount * 4];
+            for (int i = 0; i < transitions.length; i++) {
+                transitions[i] = input.readInt();
+                if (transitions[i] < PRUNED || transitions[i] >= stateCount) {
+                    throw new IOException("bad machine file");
+                }
+            }
+            if (input.read() != -1) {
+                throw new IOException("bad machine file");
+            }
+            return new MovePruningMachine(transitions, prunedStrings);
+        }
+    }
+
+/*******************************************************************************
+//Method:       writeMachine
+//Description:  Saves a machine, gzipped.
+//Parameters:   file        the machine file
+//              maxLength   the longest move string it was built from
+//              machine     the machine
+//Returns:      Nothing
+//Calls:        Nothing
+//Globals:      None
+**/
+    private static void writeMachine(File file, int maxLength, MovePruningMachine machine) throws IOException {
+        File directory = file.getParentFile();
+        if (directory != null && !directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("could not create " + directory);
+        }
+        try (DataOutputStream output = new DataOutputStream(
+                new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(file)), 1 << 16))) {
+            output.writeInt(MAGIC);
+            output.writeInt(maxLength);
+            output.writeInt(machine.prunedStrings);
+            output.writeInt(machine.getStateCount());
+            for (int transition : machine.transitions) {
+                output.writeInt(transition);
+            }
+        }
+    }
+}
@@ -0,0 +1,268 @@
+/********************************************************************************
+//*******************************************************************************
+//Class:        ParallelIdaStarSearch
+//Description:  This is the parallel iterative-deepening A* mode of the tile
+//              puzzle solver. The start state is expanded breadth-first into a
+//              frontier of a few thousand boards. Each deepening iteration
+//              then splits the frontier over a ForkJoinPool, whose idle
+//              workers steal unsearched halves from busy ones. Every worker
+//              runs the usual depth-first search on its own board copy.
+//
+//              All workers share the current threshold, the smallest f-value
+//              seen over it (the next threshold), and a found flag. The first
+//              solution found inside a threshold is optimal, so the other
+//              workers stop as soon as the flag is raised.
+**/
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class ParallelIdaStarSearch {
+
+    // <editor-fold defaultstate="collapsed" desc="Global Variables">
+    static final int FRONTIER_SIZE = 4096;//Frontier boards to split the work over
+
+    private final PuzzleSolver solver;//The engine that receives the results
+    private final int heuristicMode;//The heuristic used for f-values
+    private ArrayList<FrontierNode> frontier = new ArrayList<>();//Boards the work is split over
+    private volatile int threshold;//The f-value limit of the current iteration
+    private final AtomicInteger nextThreshold = new AtomicInteger();//Smallest f-value over the limit
+    private final AtomicReference<int[]> solutionMoves = new AtomicReference<>();//First path found
+    private final AtomicLong nodesExpanded = new AtomicLong();//Nodes expanded by all workers
+    // </editor-fold>
+
+/*******************************************************************************
+//Method:       ParallelIdaStarSearch
+//Description:  Sets up a parallel search for an engine's start state.
+//Parameters:   givenSolver     the engine holding the start and goal states
+//Returns:      Nothing
+//Calls:        Nothing
+//Globals:      solver
+//              heuristicMode
+**/
+    ParallelIdaStarSearch(PuzzleSolver givenSolver) {
+        solver = givenSolver;
+        heuristicMode = givenSolver.heuristicMode;
+    }
+
+/*******************************************************************************
+//Method:       search
+//Description:  Runs the deepening iterations on a pool and hands the optimal
+//              path and the counters back to the engine.
+//Parameters:   parallelism     the number of worker threads
+//Returns:      Nothing
+//Calls:        buildFrontier
+//Globals:      threshold
+//              nextThreshold
+//              solutionMoves
+//              nodesExpanded
+**/
+    void search(int parallelism) {
+        int[] shallowSolution = buildFrontier();
+        if (shallowSolution != null) {
+            solver.nodesExpanded = nodesExpanded.get();
+            solver.buildSolutionPath(shallowSolution, shallowSolution.length);
+            return;
+        }
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            threshold = PuzzleHeuristics.estimate(solver.gameBoard, heuristicMode);
+            while (solutionMoves.get() == null) {
+                solver.iterationsRun++;
+                nextThreshold.set(Integer.MAX_VALUE);
+                pool.invoke(new FrontierTask(0, frontier.size()));
+                if (solutionMoves.get() == null) {
+                    threshold = nextThreshold.get();
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+        int[] moves = solutionMoves.get();
+        solver.nodesExpanded = nodesExpanded.get();
+        solver.buildSolutionPath(moves, moves.length);
+    }
+
+/*******************************************************************************
+//Method:       buildFrontier
+//Description:  Expands the start state layer by layer (skipping the moves the
+//              move pruning machine rules out) until a layer holds at least FRONTIER_SIZE
+//              boards. A goal met on the way is the shortest path.
+//Parameters:   None
+//Returns:      int[]       the moves to a shallow goal, or null
+//Calls:        Nothing
+//Globals:      frontier
+//              nodesExpanded
+**/
+    private int[] buildFrontier() {
+        PuzzleBoard startBoard = solver.gameBoard.deepCopy();
+        startBoard.lastDirection = -1;
+        frontier.add(new FrontierNode(startBoard, new int[0], MovePruningMachine.START));
+        while (frontier.size() < FRONTIER_SIZE) {
+            ArrayList<FrontierNode> nextLayer = new ArrayList<>();
+            for (FrontierNode node : frontier) {
+                if (node.board.equals(solver.goalBoard)) {
+                    return node.moves;
+                }
+                nodesExpanded.incrementAndGet();
+                for (int direction = 0; direction < 4; direction++) {
+                    int childState = solver.moveMachine.next(node.machineState, direction);
+                    if (!node.board.canMove(direction) || childState == MovePruningMachine.PRUNED) {
+                        continue;
+                    }
+                    PuzzleBoard child = node.board.deepCopy();
+                    child.moveTile(direction);
+                    int[] childMoves = Arrays.copyOf(node.moves, node.moves.length + 1);
+                    childMoves[node.moves.length] = direction;
+                    nextLayer.add(new FrontierNode(child, childMoves, childState));
+                }
+            }
+            frontier = nextLayer;
+        }
+        return null;
+    }
+
+/*******************************************************************************
+//Method:       searchSubtree
+//Description:  Runs the bounded depth-first search below one frontier board.
+//Parameters:   node        the frontier board
+//Returns:      Nothing
+//Calls:        depthLimitedSearch
+//              lowerNextThreshold
+//Globals:      threshold
+//              nodesExpanded
+**/
+    private void searchSubtree(FrontierNode node) {
+        if (solutionMoves.get() != null) {
+            return;
+        }
+        PuzzleBoard board = node.board.deepCopy();
+        int[] pathMoves = Arrays.copyOf(node.moves, Math.max(threshold + 1, node.moves.length));
+        long[] expanded = new long[1];
+        int result = depthLimitedSearch(board, node.moves.length, pathMoves, node.machineState, expanded);
+        nodesExpanded.addAndGet(expanded[0]);
+        if (result < 0) {
+            solutionMoves.compareAndSet(null, Arrays.copyOf(pathMoves, -result - 1));
+        } else {
+            lowerNextThreshold(result);
+        }
+    }
+
+/*******************************************************************************
+//Method:       depthLimitedSearch
+//Description:  Searches below a board up to the shared threshold, moving and
+//              unmoving the board in place. Gives up as soon as any worker
+//              has found the goal.
+//Parameters:   board               the board to search from
+//              pathDepth           the depth of the board
+//              pathMoves           the moves from the start state
+//              machineState        the move pruning state of the path
+//              expanded            counts the nodes this worker expands
+//Returns:      int     the next threshold, or -(goal depth + 1) when found
+//Calls:        PuzzleHeuristics.estimate
+//Globals:      threshold
+//              solutionMoves
+**/
+    private int depthLimitedSearch(PuzzleBoard board, int pathDepth, int[] pathMoves,
+            int machineState, long[] expanded) {
+        int estimate = pathDepth + PuzzleHeuristics.estimate(board, heuristicMode);
+        if (estimate > threshold) {
+            return estimate;
+        }
+        if (board.equals(solver.goalBoard)) {
+            return -pathDepth - 1;
+        }
+        if (solutionMoves.get() != null) {
+            return Integer.MAX_VALUE;
+        }
+        expanded[0]++;
+        int smallestOver = Integer.MAX_VALUE;
+        for (int direction = 0; direction < 4; direction++) {
+            int nextState = solver.moveMachine.next(machineState, direction);
+            if (nextState == MovePruningMachine.PRUNED || !board.canMove(direction)) {
+                continue;
+            }
+            board.moveTile(direction);
+            pathMoves[pathDepth] = direction;
+            int result = depthLimitedSearch(board, pathDepth + 1, pathMoves, nextState, expanded);
+            if (result < 0) {
+                return result;
+            }
+            board.moveTile(PuzzleSolver.oppositeDirection(direction));
+            smallestOver = Math.min(smallestOver, result);
+        }
+        return smallestOver;
+    }
+
+/*******************************************************************************
+//Method:       lowerNextThreshold
+//Description:  Lowers the shared next threshold to a worker's value.
+//Parameters:   value       the smallest f-value over the threshold seen
+//Returns:      Nothing
+//Calls:        Nothing
+//Globals:      nextThreshold
+**/
+    private void lowerNextThreshold(int value) {
+        int current = nextThreshold.get();
+        while (value < current && !nextThreshold.compareAndSet(current, value)) {
+            current = nextThreshold.get();
+        }
+    }
+
+/********************************************************************************
+//*******************************************************************************
+//Class:        FrontierNode
+//Description:  This class holds a frontier board, the moves that reach it and
+//              the move pruning state after them.
+**/
+    private static class FrontierNode {
+
+        final PuzzleBoard board;
+        final int[] moves;
+        final int machineState;
+
+        FrontierNode(PuzzleBoard givenBoard, int[] givenMoves, int givenMachineState) {
+            board = givenBoard;
+            moves = givenMoves;
+            machineState = givenMachineState;
+        }
+    }
+
+/********************************************************************************
+//*******************************************************************************
+//Class:        FrontierTask
+//Description:  This class searches a range of the frontier, splitting it in
+//              half until single boards are left so idle workers can steal
+//              the halves.
+**/
+    private class FrontierTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int start;
+        private final int end;
+
+        FrontierTask(int givenStart, int givenEnd) {
+            start = givenStart;
+            end = givenEnd;
+        }
+
+        @Override
+        protected void compute() {
+            if (solutionMoves.get() != null) {
+                return;
+            }
+            if (end - start == 1) {
+                searchSubtree(frontier.get(start));
+            } else {
+                int middle = (start + end) >>> 1;
+                invokeAll(new FrontierTask(start, middle), new FrontierTask(middle, end));
+            }
+        }
+    }
+}
@@ -0,0 +1,274 @@
+/********************************************************************************
+//*******************************************************************************
+//Class:        PartialExpansionSearch
+//Description:  This is the enhanced partial-expansion A* (EPEA*) mode of the
+//              tile puzzle solver. Plain A* puts every child of a board into
+//              open, though most of them have an f-value above the optimal
+//              length and are never expanded. Here each board in open keeps
+//              a stored value F (at first its own f). An expansion only
+//              generates the children whose f is F, then puts the board back
+//              with the next higher f among its other children. So open holds
+//              about one entry per expanded board instead of one per child.
+//
+//              With the Manhattan heuristic the f-change of every move is
+//              read from an operator-selection table, indexed by the moving
+//              tile, the blank's cell and the move. Children are never built
+//              to find out their f. Other heuristics have no such table, so
+//              their children are scored on a scratch board and only the
+//              selected ones are kept.
+**/
+
+import java.util.HashMap;
+import java.util.PriorityQueue;
+
+public class PartialExpansionSearch {
+
+    // <editor-fold defaultstate="collapsed" desc="Global Variables">
+    private final PuzzleSolver solver;//The engine that receives the results
+    private final int side;//Side length of the board
+    private final int[] costChanges;//f-change by (tile * cells + blank cell) * 4 + move (null=not Manhattan)
+    private final HashMap<PuzzleBoard, Node> nodes = new HashMap<>();//Every board reached, with its best node
+    private final PriorityQueue<Node> open = new PriorityQueue<>();//Boards with children left to generate
+    private PuzzleBoard probeBoard;//Scratch board for trying moves before copying
+    // </editor-fold>
+
+/*******************************************************************************
+//Method:       PartialExpansionSearch
+//Description:  Sets up an EPEA* search for an engine's start state, building
+//              the operator-selection table when the heuristic is Manhattan.
+//Parameters:   givenSolver     the engine holding the start state and settings
+//Returns:      Nothing
+//Calls:        buildCostChanges
+//Globals:      solver
+//              side
+//              costChanges
+**/
+    PartialExpansionSearch(PuzzleSolver givenSolver) {
+        solver = givenSolver;
+        side = givenSolver.gameBoard.sideLength;
+        costChanges = givenSolver.heuristicMode == PuzzleHeuristics.MANHATTAN ? buildCostChanges() : null;
+    }
+
+/*******************************************************************************
+//Method:       buildCostChanges
+//Description:  Builds the operator-selection table. A blank move slides the
+//              tile next to the blank into the blank's cell, which changes f
+//              by 1 plus the change in that tile's Manhattan distance (so by
+//              0 or 2).
+//Parameters:   None
+//Returns:      int[]       the f-change by (tile * cells + blank cell) * 4 + move
+//Calls:        neighborCell
+//              PuzzleBoard.tileDistance
+//Globals:      side
+**/
+    private int[] buildCostChanges() {
+        int cellCount = side * side;
+        PuzzleBoard goal = solver.goalBoard;
+        int[] table = new int[cellCount * cellCount * 4];
+        for (int tile = 1; tile < cellCount; tile++) {
+            for (int blank = 0; blank < cellCount; blank++) {
+                for (int direction = 0; direction < 4; direction++) {
+                    int from = neighborCell(blank, direction);
+                    if (from >= 0) {
+                        table[(tile * cellCount + blank) * 4 + direction]
+                                = 1 + goal.tileDistance(tile, blank) - goal.tileDistance(tile, from);
+                    }
+                }
+            }
+        }
+        return table;
+    }
+
+/*******************************************************************************
+//Method:       search
+//Description:  Runs EPEA* until the goal comes out of open, then hands the
+//              path to the engine. The boards it holds are reported as the
+//              closed size.
+//Parameters:   None
+//Returns:      Nothing
+//Calls:        expand
+//              PuzzleSolver.buildSolutionPath
+//Globals:      nodes
+//              open
+//              probeBoard
+**/
+    void search() {
+        PuzzleBoard startBoard = solver.gameBoard.deepCopy();
+        startBoard.lastDirection = -1;
+        probeBoard = startBoard.deepCopy();
+        Node start = new Node(startBoard, 0, estimate(startBoard), null);
+        nodes.put(startBoard, start);
+        open.add(start);
+        try {
+            while (true) {
+                //Stop once the boards held would go over the memory budget
+                if (solver.nodeLimit > 0 && nodes.size() > solver.nodeLimit) {
+                    solver.budgetExceeded = true;
+                    solver.printProgress("Stopped: the search went over its memory budget");
+                    return;
+                }
+                Node current = open.poll();
+                if (current == null) {
+                    solver.unsolvable = true;
+                    solver.printProgress("No solution: the start state cannot reach the goal state");
+                    return;
+                }
+                //Skip entries left behind when a shorter path to the board was found
+                if (nodes.get(current.board) != current) {
+                    continue;
+                }
+                if (current.board.equals(solver.goalBoard)) {
+                    buildSolutionPath(current);
+                    return;
+                }
+                solver.nodesExpanded++;
+                expand(current);
+                solver.peakOpenSize = Math.max(solver.peakOpenSize, open.size());
+            }
+        } finally {
+            solver.searchClosedSize = nodes.size();
+        }
+    }
+
+/*******************************************************************************
+//Method:       expand
+//Description:  Generates the children of a node whose f lies above the value
+//              it was last expanded at and at most its stored value, then
+//              puts the node back with the lowest f still left among its
+//              children (or drops it if none is left).
+//Parameters:   node        the node
+//Returns:      Nothing
+//Calls:        costChange
+//              estimate
+//              PuzzleSolver.oppositeDirection
+//Globals:      nodes
+//              open
+//              probeBoard
+**/
+    private void expand(Node node) {
+        PuzzleBoard board = node.board;
+        int f = node.g + node.h;
+        int nextValue = Integer.MAX_VALUE;
+        for (int directionToMove = 0; directionToMove < 4; directionToMove++) {
+            if (!board.canMove(directionToMove)
+                    || directionToMove == PuzzleSolver.oppositeDirection(board.lastDirection)) {
+                continue;
+            }
+            int childValue = f + costChange(board, node.h, directionToMove);
+            if (childValue > node.storedValue) {
+                nextValue = Math.min(nextValue, childValue);
+                continue;
+            }
+            if (childValue <= node.expandedValue) {
+                continue;
+            }
+            probeBoard.copyFrom(board);
+            probeBoard.moveTile(directionToMove);
+            Node existing = nodes.get(probeBoard);
+            if (existing != null && existing.g <= node.g + 1) {
+                continue;
+            }
+            PuzzleBoard childBoard = probeBoard.deepCopy();
+            childBoard.lastDirection = directionToMove;
+            solver.totalBoardsCreated++;
+            Node child = new Node(childBoard, node.g + 1, childValue - node.g - 1, node);
+            nodes.put(childBoard, child);
+            open.add(child);
+        }
+        //The node is still in the map, so it is put back rather than copied
+        if (nextValue != Integer.MAX_VALUE) {
+            node.expandedValue = node.storedValue;
+            node.storedValue = nextValue;
+            open.add(node);
+        }
+    }
+
+/*******************************************************************************
+//Method:       costChange
+//Description:  Gives how much a move changes f, from the operator-selection
+//              table or by scoring the child on the scratch board.
+//Parameters:   board       the board
+//              h           its heuristic value
+//              direction   the blank move
+//Returns:      int         the f-change
+//Calls:        neighborCell
+//              estimate
+//Globals:      costChanges
+//              probeBoard
+**/
+    private int costChange(PuzzleBoard board, int h, int direction) {
+        if (costChanges != null) {
+            int tile = board.getTile(neighborCell(board.blankIndex, direction));
+            return costChanges[(tile * side * side + board.blankIndex) * 4 + direction];
+        }
+        probeBoard.copyFrom(board);
+        probeBoard.moveTile(direction);
+        return 1 + estimate(probeBoard) - h;
+    }
+
+    private int estimate(PuzzleBoard board) {
+        return PuzzleHeuristics.estimate(board, solver.heuristicMode);
+    }
+
+    private int neighborCell(int cell, int direction) {
+        switch (direction) {
+            case 0:
+                return cell >= side ? cell - side : -1;
+            case 1:
+                return cell % side < side - 1 ? cell + 1 : -1;
+            case 2:
+                return cell < side * side - side ? cell + side : -1;
+            default:
+                return cell % side > 0 ? cell - 1 : -1;
+        }
+    }
+
+/*******************************************************************************
+//Method:       buildSolutionPath
+//Description:  Reads the moves off the parent chain of the goal node and
+//              replays them on the engine.
+//Parameters:   goal        the goal node
+//Returns:      Nothing
+//Calls:        PuzzleSolver.buildSolutionPath
+//Globals:      None
+**/
+    private void buildSolutionPath(Node goal) {
+        int[] pathMoves = new int[goal.g];
+        for (Node node = goal; node.parent != null; node = node.parent) {
+            pathMoves[node.g - 1] = node.board.lastDirection;
+        }
+        solver.buildSolutionPath(pathMoves, goal.g);
+    }
+
+/********************************************************************************
+//*******************************************************************************
+//Class:        Node
+//Description:  This class holds a board reached by the search, ordered in open
+//              by its stored value and then by depth (deepest first).
+**/
+    private static class Node implements Comparable<Node> {
+
+        final PuzzleBoard board;//The board
+        final int g;//Moves from the start
+        final int h;//Heuristic value
+        final Node parent;//Node it was reached from (null=start)
+        int storedValue;//Lowest f among the children not yet generated
+        int expandedValue = Integer.MIN_VALUE;//Stored value at the last expansion
+
+        Node(PuzzleBoard givenBoard, int givenG, int givenH, Node givenParent) {
+            board = givenBoard;
+            g = givenG;
+            h = givenH;
+            parent = givenParent;
+            storedValue = givenG + givenH;
+        }
+
+        @Override
+        public int compareTo(Node other) {
+            if (storedValue != other.storedValue) {
+                return Integer.compare(storedValue, other.storedValue);
+            }
+            return Integer.compare(other.g, g);
+        }
+    }
+}
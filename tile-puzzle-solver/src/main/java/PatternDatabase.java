@@ -0,0 +1,597 @@
+/********************************************************************************
+//*******************************************************************************
+//Class:        PatternDatabase
+//Description:  This is the additive pattern database object for the tile
+//              puzzle solver. The tiles are split into disjoint groups and, for
+//              each group, a table stores the fewest moves of that group's
+//              tiles needed to bring them home from every placement. Moves of
+//              the other tiles are free, so the group values can be added.
+//
+//              The tables are built once by a backward breadth-first search
+//              from the goal and written to disk. At solve time the files are
+//              memory-mapped, so lookups read straight from the page cache.
+//
+//              File layout (big-endian): int magic, int sideLength, int
+//              tileCount, int[tileCount] tiles, then one byte per placement
+//              indexed by its rank (see rankPlacement).
+//
+//              Build from the command line with:
+//                  java PatternDatabase <partition> [directory]
+//              where partition is one of 4-4 (3x3), 6-6-3 or 7-8 (4x4) and
+//              6-6-6-6 (5x5). The 7-8 and 6-6-6-6 builds need several
+//              gigabytes of heap (-Xmx) for their search bitsets.
+**/
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+public class PatternDatabase {
+
+    // <editor-fold defaultstate="collapsed" desc="Global Variables">
+    private static final int MAGIC = 0x50444231;//"PDB1"
+    private static final String[] PARTITION_NAMES = {"4-4", "6-6-3", "7-8", "6-6-6-6"};//Known partitions
+    private static final int[] PARTITION_SIDES = {3, 4, 4, 5};//Side length of each partition
+    private static final int[][][] PARTITION_GROUPS = {
+        {{1, 2, 3, 4}, {5, 6, 7, 8}},
+        {{1, 5, 6, 9, 10, 13}, {7, 8, 11, 12, 14, 15}, {2, 3, 4}},
+        {{1, 5, 6, 9, 10, 13, 14}, {2, 3, 4, 7, 8, 11, 12, 15}},
+        {{1, 2, 3, 6, 7, 8}, {4, 5, 9, 10, 14, 15}, {11, 12, 13, 16, 17, 18}, {19, 20, 21, 22, 23, 24}}
+    };//Tile groups of each partition
+    private static final AtomicReferenceArray<PatternDatabase> LOADED
+            = new AtomicReferenceArray<>(PuzzleBoard.MAX_SIDE + 1);//Loaded database by side length
+
+    private final int sideLength;//The side length the database covers
+    private final String partitionName;//The partition the groups come from
+    private final int[][] groups;//The tiles of each group
+    private final int[][] slotOfTile;//Index of each tile within each group (-1=not in it)
+    private final MappedByteBuffer[] tables;//The mapped table of each group
+    private final int[] tableOffsets;//Where the table bytes start in each file
+    // </editor-fold>
+
+/*******************************************************************************
+//Method:       PatternDatabase
+//Description:  Maps the table files of a partition.
+//Parameters:   givenSideLength     the side length of the puzzle
+//              givenPartition      the partition index
+//              directory           the directory holding the files
+//Returns:      Nothing
+//Calls:        getFile
+//Globals:      sideLength
+//              partitionName
+//              groups
+//              slotOfTile
+//              tables
+//              tableOffsets
+**/
+    private PatternDatabase(int givenSideLength, int givenPartition, File directory) throws IOException {
+        sideLength = givenSideLength;
+        partitionName = PARTITION_NAMES[givenPartition];
+        groups = PARTITION_GROUPS[givenPartition];
+        slotOfTile = new int[groups.length][givenSideLength * givenSideLength];
+        for (int group = 0; group < groups.length; group++) {
+            Arrays.fill(slotOfTile[group], -1);
+            for (int slot = 0; slot < groups[group].length; slot++) {
+                slotOfTile[group][groups[group][slot]] = slot;
+            }
+        }
+        tables = new MappedByteBuffer[groups.length];
+        tableOffsets = new int[groups.length];
+        for (int group = 0; group < groups.length; group++) {
+            File file = getFile(directory, givenPartition, group);
+            try (RandomAccessFile input = new RandomAccessFile(file, "r");
+                    FileChannel channel = input.getChannel()) {
+                MappedByteBuffer table = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                if (table.getInt(0) != MAGIC || table.getInt(4) != sideLength
+                        || table.getInt(8) != groups[group].length) {
+                    throw new IOException("Bad pattern database file " + file);
+                }
+                tables[group] = table;
+                tableOffsets[group] = 12 + 4 * groups[group].length;
+            }
+        }
+    }
+
+/*******************************************************************************
+//Method:       main
+//Description:  Builds the tables of a partition and writes them to disk.
+//Parameters:   args        partition name and optional output directory
+//Returns:      Nothing
+//Calls:        build
+//Globals:      None
+**/
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.out.println("Usage: java PatternDatabase <partition> [directory]");
+            System.out.println("Partitions: " + Arrays.toString(PARTITION_NAMES));
+            return;
+        }
+        File directory = new File(args.length > 1 ? args[1] : getDefaultDirectory());
+        build(args[0], directory);
+    }
+
+/*******************************************************************************
+//Method:       getDefaultDirectory
+//Description:  Gets the table directory (system property pdb.dir, default pdb).
+//Parameters:   None
+//Returns:      String      the directory
+//Calls:        Nothing
+//Globals:      None
+**/
+    static String getDefaultDirectory() {
+        return System.getProperty("pdb.dir", "pdb");
+    }
+
+/*******************************************************************************
+//Method:       build
+//Description:  Builds every group table of a partition and writes the files.
+//Parameters:   name        the partition name
+//              directory   the output directory
+//Returns:      Nothing
+//Calls:        buildGroupTable
+//              writeTable
+//Globals:      None
+**/
+    static void build(String name, File directory) throws IOException {
+        int partition = findPartition(name);
+        if (partition < 0) {
+            throw new IllegalArgumentException("Unknown partition " + name);
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Could not create " + directory);
+        }
+        int side = PARTITION_SIDES[partition];
+        int[][] partitionGroups = PARTITION_GROUPS[partition];
+        for (int group = 0; group < partitionGroups.length; group++) {
+            long startTime = System.currentTimeMillis();
+            byte[] table = buildGroupTable(side, partitionGroups[group]);
+            writeTable(getFile(directory, partition, group), side, partitionGroups[group], table);
+            System.out.println("Built group " + Arrays.toString(partitionGroups[group]) + ": "
+                    + table.length + " entries in " + (System.currentTimeMillis() - startTime) + " ms");
+        }
+    }
+
+/*******************************************************************************
+//Method:       loadForSide
+//Description:  Maps the strongest partition found on disk for a side length so
+//              the heuristic can use it. Partitions later in the list are
+//              stronger, so they are tried first.
+//Parameters:   side        the side length of the puzzle
+//Returns:      boolean     true=a database is loaded; false=none found
+//Calls:        PatternDatabase
+//Globals:      LOADED
+**/
+    static synchronized boolean loadForSide(int side) {
+        if (LOADED.get(side) != null) {
+            return true;
+        }
+        File directory = new File(getDefaultDirectory());
+        for (int partition = PARTITION_NAMES.length - 1; partition >= 0; partition--) {
+            if (PARTITION_SIDES[partition] != side || !hasFiles(directory, partition)) {
+                continue;
+            }
+            try {
+                LOADED.set(side, new PatternDatabase(side, partition, directory));
+                return true;
+            } catch (IOException e) {
+                System.out.println("Could not map pattern database " + PARTITION_NAMES[partition]
+                        + ": " + e.getMessage());
+            }
+        }
+        return false;
+    }
+
+/*******************************************************************************
+//Method:       forSide
+//Description:  Gets the loaded database for a side length.
+//Parameters:   side                the side length of the puzzle
+//Returns:      PatternDatabase     the database, or null if none is loaded
+//Calls:        Nothing
+//Globals:      LOADED
+**/
+    static PatternDatabase forSide(int side) {
+        return LOADED.get(side);
+    }
+
+/*******************************************************************************
+//Method:       getPartitionName
+//Description:  Gets the name of the partition this database was built from.
+//Parameters:   None
+//Returns:      String      the partition name
+//Calls:        Nothing
+//Globals:      partitionName
+**/
+    String getPartitionName() {
+        return partitionName;
+    }
+
+/*******************************************************************************
+//Method:       estimate
+//Description:  Adds up the group table values for a board. Nothing is
+//              allocated per call: up to 4x4, the cell of every tile fits in
+//              one long, 4 bits per tile. Larger boards read each group's
+//              cells straight off the board, 8 bits per tile.
+//Parameters:   board       the board to estimate
+//Returns:      int         the admissible estimate
+//Calls:        rankPackedCells
+//Globals:      groups
+//              slotOfTile
+//              tables
+//              tableOffsets
+**/
+    int estimate(PuzzleBoard board) {
+        int cellCount = sideLength * sideLength;
+        int total = 0;
+        if (cellCount <= 16) {
+            long cellOfTile = 0;
+            for (int cell = 0; cell < cellCount; cell++) {
+                cellOfTile |= (long) cell << (board.getTile(cell) << 2);
+            }
+            for (int group = 0; group < groups.length; group++) {
+                int rank = rankPackedCells(cellOfTile, groups[group], cellCount);
+                total += tables[group].get(tableOffsets[group] + rank) & 0xFF;
+            }
+            return total;
+        }
+        for (int group = 0; group < groups.length; group++) {
+            int[] slots = slotOfTile[group];
+            long groupCells = 0;
+            for (int cell = 0; cell < cellCount; cell++) {
+                int slot = slots[board.getTile(cell)];
+                if (slot >= 0) {
+                    groupCells |= (long) cell << (slot << 3);
+                }
+            }
+            int rank = rankPackedCells(groupCells, groups[group].length, cellCount);
+            total += tables[group].get(tableOffsets[group] + rank) & 0xFF;
+        }
+        return total;
+    }
+
+/*******************************************************************************
+//Method:       rankPackedCells
+//Description:  Ranks a group's cells the same way as rankPlacement, reading
+//              them from a long of 4-bit cells indexed by tile.
+//Parameters:   cellOfTile  the cell of tile t in bits 4t
+//              tiles       the tiles of the group
+//              cellCount   the number of cells on the board (at most 16)
+//Returns:      int         the rank
+//Calls:        Nothing
+//Globals:      None
+**/
+    private static int rankPackedCells(long cellOfTile, int[] tiles, int cellCount) {
+        long usedCells = 0;
+        long rank = 0;
+        for (int i = 0; i < tiles.length; i++) {
+            int cell = (int) (cellOfTile >>> (tiles[i] << 2)) & 0xF;
+            int digit = cell - Long.bitCount(usedCells & ((1L << cell) - 1));
+            rank = rank * (cellCount - i) + digit;
+            usedCells |= 1L << cell;
+        }
+        return (int) rank;
+    }
+
+/*******************************************************************************
+//Method:       rankPackedCells
+//Description:  Ranks a group's cells the same way as rankPlacement, reading
+//              them from a long of 8-bit cells in group order.
+//Parameters:   groupCells  the cell of group tile i in bits 8i
+//              tileCount   the number of tiles in the group (at most 8)
+//              cellCount   the number of cells on the board
+//Returns:      int         the rank
+//Calls:        Nothing
+//Globals:      None
+**/
+    private static int rankPackedCells(long groupCells, int tileCount, int cellCount) {
+        long usedCells = 0;
+        long rank = 0;
+        for (int i = 0; i < tileCount; i++) {
+            int cell = (int) (groupCells >>> (i << 3)) & 0xFF;
+            int digit = cell - Long.bitCount(usedCells & ((1L << cell) - 1));
+            rank = rank * (cellCount - i) + digit;
+            usedCells |= 1L << cell;
+        }
+        return (int) rank;
+    }
+
+/*******************************************************************************
+//Method:       rankPlacement
+//Description:  Ranks the cells of a group's tiles as a partial permutation.
+//              Each tile's cell is counted among the cells not taken by the
+//              tiles before it, giving a mixed-radix number with digits
+//              below cellCount, cellCount - 1, and so on.
+//Parameters:   tiles       the tiles of the group
+//              cellOfTile  the cell each tile sits in
+//              cellCount   the number of cells on the board
+//Returns:      int         the rank
+//Calls:        Nothing
+//Globals:      None
+**/
+    static int rankPlacement(int[] tiles, int[] cellOfTile, int cellCount) {
+        long usedCells = 0;
+        long rank = 0;
+        for (int i = 0; i < tiles.length; i++) {
+            int cell = cellOfTile[tiles[i]];
+            int digit = cell - Long.bitCount(usedCells & ((1L << cell) - 1));
+            rank = rank * (cellCount - i) + digit;
+            usedCells |= 1L << cell;
+        }
+        return (int) rank;
+    }
+
+/*******************************************************************************
+//Method:       unrankPlacement
+//Description:  Turns a rank from rankPlacement back into the group's cells.
+//Parameters:   rank        the rank
+//              cells       filled with the cell of each group tile
+//              cellCount   the number of cells on the board
+//Returns:      long        the bitmask of the cells taken by the group
+//Calls:        Nothing
+//Globals:      None
+**/
+    private static long unrankPlacement(long rank, int[] cells, int cellCount) {
+        int tileCount = cells.length;
+        int[] digits = new int[tileCount];
+        for (int i = tileCount - 1; i >= 0; i--) {
+            digits[i] = (int) (rank % (cellCount - i));
+            rank /= cellCount - i;
+        }
+        long usedCells = 0;
+        for (int i = 0; i < tileCount; i++) {
+            //Find the cell that is the digit-th free cell
+            int remaining = digits[i];
+            int cell = 0;
+            while (true) {
+                if ((usedCells & (1L << cell)) == 0) {
+                    if (remaining == 0) {
+                        break;
+                    }
+                    remaining--;
+                }
+                cell++;
+            }
+            cells[i] = cell;
+            usedCells |= 1L << cell;
+        }
+        return usedCells;
+    }
+
+/*******************************************************************************
+//Method:       buildGroupTable
+//Description:  Runs the backward breadth-first search for one group. A search
+//              state is a group placement plus the blank cell. Moving a tile
+//              from another group costs nothing, so each layer first spreads
+//              the blank over its free region before the group tiles are
+//              moved into the next layer. The table keeps the cheapest cost
+//              over all blank cells.
+//Parameters:   side        the side length of the puzzle
+//              tiles       the tiles of the group
+//Returns:      byte[]      the distance of every placement, by rank
+//Calls:        rankPlacement
+//              unrankPlacement
+//Globals:      None
+**/
+    private static byte[] buildGroupTable(int side, int[] tiles) {
+        int cellCount = side * side;
+        long placementCount = 1;
+        for (int i = 0; i < tiles.length; i++) {
+            placementCount *= cellCount - i;
+        }
+        long stateCount = placementCount * cellCount;
+        byte[] table = new byte[(int) placementCount];
+        Arrays.fill(table, (byte) -1);
+        long[] visited = new long[(int) ((stateCount + 63) >>> 6)];
+        long[] current = new long[visited.length];
+        long[] next = new long[visited.length];
+        //The goal placement, with the blank in the last cell
+        int[] cellOfTile = new int[cellCount];
+        for (int tile = 1; tile < cellCount; tile++) {
+            cellOfTile[tile] = tile - 1;
+        }
+        long goalState = rankPlacement(tiles, cellOfTile, cellCount) * (long) cellCount + cellCount - 1;
+        current[(int) (goalState >>> 6)] |= 1L << goalState;
+        int[] cells = new int[tiles.length];
+        int[] region = new int[cellCount];
+        for (int cost = 0; cost < 255; cost++) {
+            boolean layerEmpty = true;
+            for (int word = 0; word < current.length; word++) {
+                long bits = current[word] & ~visited[word];
+                while (bits != 0) {
+                    layerEmpty = false;
+                    long state = ((long) word << 6) + Long.numberOfTrailingZeros(bits);
+                    bits &= bits - 1;
+                    if ((visited[(int) (state >>> 6)] & (1L << state)) != 0) {
+                        continue;
+                    }
+                    long placement = state / cellCount;
+                    int blank = (int) (state % cellCount);
+                    long groupCells = unrankPlacement(placement, cells, cellCount);
+                    if (table[(int) placement] == -1) {
+                        table[(int) placement] = (byte) cost;
+                    }
+                    //Spread the blank over the free cells it can reach for free
+                    int regionSize = 0;
+                    long regionCells = 1L << blank;
+                    region[regionSize++] = blank;
+                    for (int i = 0; i < regionSize; i++) {
+                        int cell = region[i];
+                        long regionState = placement * cellCount + cell;
+                        visited[(int) (regionState >>> 6)] |= 1L << regionState;
+                        for (int direction = 0; direction < 4; direction++) {
+                            int neighbor = neighborCell(side, cell, direction);
+                            if (neighbor < 0 || (regionCells & (1L << neighbor)) != 0) {
+                                continue;
+                            }
+                            if ((groupCells & (1L << neighbor)) == 0) {
+                                regionCells |= 1L << neighbor;
+                                region[regionSize++] = neighbor;
+                            } else {
+                                //Slide the group tile into the blank for one move
+                                int tileIndex = indexOfCell(cells, neighbor);
+                                cells[tileIndex] = cell;
+                                long nextState = rankCells(cells, cellCount) * (long) cellCount + neighbor;
+                                cells[tileIndex] = neighbor;
+                                if ((visited[(int) (nextState >>> 6)] & (1L << nextState)) == 0) {
+                                    next[(int) (nextState >>> 6)] |= 1L << nextState;
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+            if (layerEmpty) {
+                break;
+            }
+            long[] swap = current;
+            current = next;
+            next = swap;
+            Arrays.fill(next, 0);
+        }
+        return table;
+    }
+
+/*******************************************************************************
+//Method:       rankCells
+//Description:  Ranks group cells given in group order (see rankPlacement).
+//Parameters:   cells       the cell of each group tile
+//              cellCount   the number of cells on the board
+//Returns:      long        the rank
+//Calls:        Nothing
+//Globals:      None
+**/
+    private static long rankCells(int[] cells, int cellCount) {
+        long usedCells = 0;
+        long rank = 0;
+        for (int i = 0; i < cells.length; i++) {
+            int digit = cells[i] - Long.bitCount(usedCells & ((1L << cells[i]) - 1));
+            rank = rank * (cellCount - i) + digit;
+            usedCells |= 1L << cells[i];
+        }
+        return rank;
+    }
+
+/*******************************************************************************
+//Method:       neighborCell
+//Description:  Finds the cell next to a cell in a direction.
+//Parameters:   side        the side length of the puzzle
+//              cell        the starting cell
+//              direction   0 = up, 1 = right, 2 = down, 3 = left
+//Returns:      int         the neighboring cell, or -1 off the board
+//Calls:        Nothing
+//Globals:      None
+**/
+    private static int neighborCell(int side, int cell, int direction) {
+        int row = cell / side;
+        int col = cell % side;
+        switch (direction) {
+            case 0:
+                return row > 0 ? cell - side : -1;
+            case 1:
+                return col < side - 1 ? cell + 1 : -1;
+            case 2:
+                return row < side - 1 ? cell + side : -1;
+            default:
+                return col > 0 ? cell - 1 : -1;
+        }
+    }
+
+/*******************************************************************************
+//Method:       indexOfCell
+//Description:  Finds which group tile sits in a cell.
+//Parameters:   cells       the cell of each group tile
+//              cell        the cell to look for
+//Returns:      int         the group index of the tile
+//Calls:        Nothing
+//Globals:      None
+**/
+    private static int indexOfCell(int[] cells, int cell) {
+        for (int i = 0; i < cells.length; i++) {
+            if (cells[i] == cell) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+/*******************************************************************************
+//Method:       writeTable
+//Description:  Writes one group table with its header.
+//Parameters:   file        the file to write
+//              side        the side length of the puzzle
+//              tiles       the tiles of the group
+//              table       the distance of every placement
+//Returns:      Nothing
+//Calls:        Nothing
+//Globals:      None
+**/
+    private static void writeTable(File file, int side, int[] tiles, byte[] table) throws IOException {
+        try (DataOutputStream output = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(file), 1 << 16))) {
+            output.writeInt(MAGIC);
+            output.writeInt(side);
+            output.writeInt(tiles.length);
+            for (int i = 0; i < tiles.length; i++) {
+                output.writeInt(tiles[i]);
+            }
+            output.write(table);
+        }
+    }
+
+/*******************************************************************************
+//Method:       findPartition
+//Description:  Finds a partition by name.
+//Parameters:   name        the partition name
+//Returns:      int         the partition index, or -1 if unknown
+//Calls:        Nothing
+//Globals:      None
+**/
+    private static int findPartition(String name) {
+        for (int i = 0; i < PARTITION_NAMES.length; i++) {
+            if (PARTITION_NAMES[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+/*******************************************************************************
+//Method:       hasFiles
+//Description:  Checks that every group file of a partition exists.
+//Parameters:   directory   the directory holding the files
+//              partition   the partition index
+//Returns:      boolean     true=all files exist
+//Calls:        getFile
+//Globals:      None
+**/
+    private static boolean hasFiles(File directory, int partition) {
+        for (int group = 0; group < PARTITION_GROUPS[partition].length; group++) {
+            if (!getFile(directory, partition, group).isFile()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+/*******************************************************************************
+//Method:       getFile
+//Description:  Names the file of one group table.
+//Parameters:   directory   the directory holding the files
+//              partition   the partition index
+//              group       the group index
+//Returns:      File        the file
+//Calls:        Nothing
+//Globals:      None
+**/
+    private static File getFile(File directory, int partition, int group) {
+        int side = PARTITION_SIDES[partition];
+        return new File(directory, side + "x" + side + "-" + PARTITION_NAMES[partition]
+                + "-" + group + ".pdb");
+    }
+}
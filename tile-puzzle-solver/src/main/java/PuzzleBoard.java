@@ -4,16 +4,30 @@
 //Description:  This is the class object for the Kawell2 program solving the 8-puzzle.
 //              It contains many helper methods for solving the puzzle.
 **/
+
+import java.util.Arrays;
+
 public class PuzzleBoard implements Comparable<PuzzleBoard> {
 
     // <editor-fold defaultstate="collapsed" desc="Global Variables">
+    static final int MAX_NIBBLE_SIDE = 4;//Largest side length packed at 4 bits per tile
+    private static final long NIBBLE_MASK = 0xFL;//Mask for one 4-bit tile
+    private static final long BYTE_MASK = 0xFFL;//Mask for one 8-bit tile
+    static final int MAX_SIDE = 10;//Largest side length accepted by the program
+    private static final int[][] MANHATTAN_TABLES = buildManhattanTables();//Distance of each tile/cell pair from the goal, by side length
+
     public int depth;//The depth of the board in the tree
     public int parent;//The parent of the board in the tree
     public int sideLength;//The length of each board side
     public int rawScore;//The raw score calcualted by the heuristic
     public int totalScore;//The total score calculated by the heuristic
-    public int[][] board;//The board array that holds the board data
-    public Coordinate blank = new Coordinate();//The location of the blank
+    public int blankIndex;//The location of the blank (row * sideLength + col)
+    public int lastDirection;//The direction of the move that made this board (-1=none)
+    public int manhattanDistance;//The Manhattan distance, kept up to date on every move
+    public int linearConflict;//The linear conflict penalty, kept up to date when tracked
+    private boolean conflictTracking;//Whether moves update linearConflict
+    private long packedTiles;//4 bits per tile for boards up to 4x4
+    private long[] wideTiles;//8 bits per tile (8 tiles per word) for 5x5 and up
     // </editor-fold>
 
 /*******************************************************************************
@@ -27,8 +41,11 @@ public class PuzzleBoard implements Comparable<PuzzleBoard> {
 //              sideLength
 //              rawScore
 //              totalScore
-//              board
-//              blank
+//              blankIndex
+//              lastDirection
+//              manhattanDistance
+//              packedTiles
+//              wideTiles
 **/
     public PuzzleBoard(int givenSideLength) {
         depth = 0;
@@ -36,8 +53,13 @@ public class PuzzleBoard implements Comparable<PuzzleBoard> {
         sideLength = givenSideLength;
         rawScore = 0;
         totalScore = 0;
-        board = new int[sideLength][sideLength];
-        blank = new Coordinate(0, 0);
+        blankIndex = 0;
+        lastDirection = -1;
+        manhattanDistance = 0;
+        packedTiles = 0;
+        if (sideLength > MAX_NIBBLE_SIDE) {
+            wideTiles = new long[(sideLength * sideLength + 7) / 8];
+        }
     }
 
 /*******************************************************************************
@@ -45,23 +67,254 @@ public class PuzzleBoard implements Comparable<PuzzleBoard> {
 //Description:  Generates the goal state from the side length.
 //Parameters:   None
 //Returns:      Nothing
-//Calls:        Nothing
+//Calls:        setTile
 //Globals:      sideLength
-//              board
-//              blank
+//              blankIndex
+//              manhattanDistance
 **/
     public void generateGoalState() {
-        int tileNumber = 1;
-        for (int i = 0; i < sideLength; i++) {
-            for (int j = 0; j < sideLength; j++) {
-                if (i != sideLength - 1 || j != sideLength - 1) {
-                    board[i][j] = tileNumber;
-                    tileNumber++;
-                } else {
-                    blank.row = i;
-                    blank.col = j;
+        int cellCount = sideLength * sideLength;
+        for (int i = 0; i < cellCount - 1; i++) {
+            setTile(i, i + 1);
+        }
+        setTile(cellCount - 1, 0);
+        blankIndex = cellCount - 1;
+        manhattanDistance = 0;
+    }
+
+/*******************************************************************************
+//Method:       isSolvable
+//Description:  Checks whether the board can reach the goal state. A move
+//              along a row keeps the tile order; a move along a column jumps
+//              one tile over sideLength - 1 others. So on an odd width the
+//              parity of the inversions never changes, and on an even width
+//              it flips with every change of the blank's row. The goal has no
+//              inversions and its blank in the last row.
+//Parameters:   None
+//Returns:      boolean     true=the goal can be reached
+//Calls:        getTile
+//Globals:      sideLength
+//              blankIndex
+**/
+    public boolean isSolvable() {
+        int cellCount = sideLength * sideLength;
+        int inversions = 0;
+        for (int i = 0; i < cellCount; i++) {
+            int tile = getTile(i);
+            if (tile == 0) {
+                continue;
+            }
+            for (int j = i + 1; j < cellCount; j++) {
+                int later = getTile(j);
+                if (later != 0 && later < tile) {
+                    inversions++;
+                }
+            }
+        }
+        if (sideLength % 2 == 1) {
+            return inversions % 2 == 0;
+        }
+        int rowsFromGoalRow = sideLength - 1 - blankIndex / sideLength;
+        return (inversions + rowsFromGoalRow) % 2 == 0;
+    }
+
+/*******************************************************************************
+//Method:       buildManhattanTables
+//Description:  Precomputes, for every supported side length, the Manhattan
+//              distance of each tile from its goal cell when it sits at each
+//              cell. The goal is the one built by generateGoalState (tile t
+//              belongs at cell t - 1). Entries are indexed by
+//              tile * cellCount + cell; the blank always scores 0.
+//Parameters:   None
+//Returns:      int[][]     the tables indexed by side length
+//Calls:        Nothing
+//Globals:      None
+**/
+    private static int[][] buildManhattanTables() {
+        int[][] tables = new int[MAX_SIDE + 1][];
+        for (int side = 2; side <= MAX_SIDE; side++) {
+            int cellCount = side * side;
+            int[] table = new int[cellCount * cellCount];
+            for (int tile = 1; tile < cellCount; tile++) {
+                int goalRow = (tile - 1) / side;
+                int goalCol = (tile - 1) % side;
+                for (int cell = 0; cell < cellCount; cell++) {
+                    table[tile * cellCount + cell] = Math.abs(cell / side - goalRow)
+                            + Math.abs(cell % side - goalCol);
                 }
             }
+            tables[side] = table;
+        }
+        return tables;
+    }
+
+/*******************************************************************************
+//Method:       tileDistance
+//Description:  Looks up the Manhattan distance of a tile from its goal cell.
+//Parameters:   tileNumber  the tile to look up (0=blank)
+//              index       the cell the tile sits in
+//Returns:      int         the distance
+//Calls:        Nothing
+//Globals:      sideLength
+**/
+    int tileDistance(int tileNumber, int index) {
+        return MANHATTAN_TABLES[sideLength][tileNumber * sideLength * sideLength + index];
+    }
+
+/*******************************************************************************
+//Method:       getTile
+//Description:  Reads the tile at the given row and column.
+//Parameters:   row, col    the position to read
+//Returns:      int         the tile number (0=blank)
+//Calls:        getTile
+//Globals:      sideLength
+**/
+    public int getTile(int row, int col) {
+        return getTile(row * sideLength + col);
+    }
+
+/*******************************************************************************
+//Method:       getTile
+//Description:  Reads the tile at the given cell index straight from the packed
+//              words.
+//Parameters:   index       the cell index (row * sideLength + col)
+//Returns:      int         the tile number (0=blank)
+//Calls:        Nothing
+//Globals:      packedTiles
+//              wideTiles
+**/
+    public int getTile(int index) {
+        if (wideTiles == null) {
+            return (int) ((packedTiles >>> (index << 2)) & NIBBLE_MASK);
+        }
+        return (int) ((wideTiles[index >>> 3] >>> ((index & 7) << 3)) & BYTE_MASK);
+    }
+
+/*******************************************************************************
+//Method:       setTile
+//Description:  Writes the tile at the given row and column. Writing the blank
+//              also moves the blank position.
+//Parameters:   row, col    the position to write
+//              tileNumber  the tile number (0=blank)
+//Returns:      Nothing
+//Calls:        getTile
+//              setTile
+//              tileDistance
+//Globals:      sideLength
+//              blankIndex
+//              manhattanDistance
+//              linearConflict
+**/
+    public void setTile(int row, int col, int tileNumber) {
+        int index = row * sideLength + col;
+        manhattanDistance += tileDistance(tileNumber, index) - tileDistance(getTile(index), index);
+        setTile(index, tileNumber);
+        if (tileNumber == 0) {
+            blankIndex = index;
+        }
+        if (conflictTracking) {
+            linearConflict = PuzzleHeuristics.countAllConflicts(this);
+        }
+    }
+
+/*******************************************************************************
+//Method:       setTile
+//Description:  Writes the tile at the given cell index into the packed words.
+//Parameters:   index       the cell index (row * sideLength + col)
+//              tileNumber  the tile number (0=blank)
+//Returns:      Nothing
+//Calls:        Nothing
+//Globals:      packedTiles
+//              wideTiles
+**/
+    private void setTile(int index, int tileNumber) {
+        if (wideTiles == null) {
+            int shift = index << 2;
+            packedTiles = (packedTiles & ~(NIBBLE_MASK << shift)) | ((long) tileNumber << shift);
+        } else {
+            int word = index >>> 3;
+            int shift = (index & 7) << 3;
+            wideTiles[word] = (wideTiles[word] & ~(BYTE_MASK << shift)) | ((long) tileNumber << shift);
+        }
+    }
+
+/*******************************************************************************
+//Method:       enableConflictTracking
+//Description:  Counts the linear conflicts of the board and keeps the count up
+//              to date on every later move. Copies inherit the tracking.
+//Parameters:   None
+//Returns:      Nothing
+//Calls:        PuzzleHeuristics.countAllConflicts
+//Globals:      linearConflict
+//              conflictTracking
+**/
+    public void enableConflictTracking() {
+        conflictTracking = true;
+        linearConflict = PuzzleHeuristics.countAllConflicts(this);
+    }
+
+/*******************************************************************************
+//Method:       tracksConflicts
+//Description:  Tells whether linearConflict is kept up to date on every move.
+//Parameters:   None
+//Returns:      boolean     true=tracked; false=not tracked
+//Calls:        Nothing
+//Globals:      conflictTracking
+**/
+    public boolean tracksConflicts() {
+        return conflictTracking;
+    }
+
+/*******************************************************************************
+//Method:       getBlankRow
+//Description:  Gets the row of the blank.
+//Parameters:   None
+//Returns:      int         the blank row
+//Calls:        Nothing
+//Globals:      blankIndex
+//              sideLength
+**/
+    public int getBlankRow() {
+        return blankIndex / sideLength;
+    }
+
+/*******************************************************************************
+//Method:       getBlankCol
+//Description:  Gets the column of the blank.
+//Parameters:   None
+//Returns:      int         the blank column
+//Calls:        Nothing
+//Globals:      blankIndex
+//              sideLength
+**/
+    public int getBlankCol() {
+        return blankIndex % sideLength;
+    }
+
+/*******************************************************************************
+//Method:       canMove
+//Description:  Checks from the blank position alone whether the blank can
+//              move in the specified direction.
+//Parameters:   direction           the direction to move the tile
+//Returns:      boolean             true=legal move
+//Calls:        Nothing
+//Globals:      blankIndex
+//              sideLength
+**/
+    public boolean canMove(int direction) {
+        //0 = up, 1 = right, 2 = down, 3 = left
+        switch (direction) {
+            case 0:
+                return blankIndex >= sideLength;
+            case 1:
+                return blankIndex % sideLength < sideLength - 1;
+            case 2:
+                return blankIndex < sideLength * (sideLength - 1);
+            case 3:
+                return blankIndex % sideLength > 0;
+            default:
+                //Wrong direction
+                return false;
         }
     }
 
@@ -71,53 +324,83 @@ public class PuzzleBoard implements Comparable<PuzzleBoard> {
 //Parameters:   direction           the direction to move the tile
 //Returns:      boolean             success/failure
 //Calls:        reassignValues
-//Globals:      blank
+//Globals:      blankIndex
+//              sideLength
+//              lastDirection
 **/
     public boolean moveTile(int direction) {
-        Coordinate movingTileCoordinate;
+        int blankRow = getBlankRow();
+        int blankCol = getBlankCol();
+        boolean moved;
         //0 = up, 1 = right, 2 = down, 3 = left
         switch (direction) {
             case 0:
-                movingTileCoordinate = new Coordinate(blank.row - 1, blank.col);
-                return reassignValues(movingTileCoordinate);
+                moved = reassignValues(blankRow - 1, blankCol);
+                break;
             case 1:
-                movingTileCoordinate = new Coordinate(blank.row, blank.col + 1);
-                return reassignValues(movingTileCoordinate);
+                moved = reassignValues(blankRow, blankCol + 1);
+                break;
             case 2:
-                movingTileCoordinate = new Coordinate(blank.row + 1, blank.col);
-                return reassignValues(movingTileCoordinate);
+                moved = reassignValues(blankRow + 1, blankCol);
+                break;
             case 3:
-                movingTileCoordinate = new Coordinate(blank.row, blank.col - 1);
-                return reassignValues(movingTileCoordinate);
+                moved = reassignValues(blankRow, blankCol - 1);
+                break;
             default:
                 //Wrong direction
+                moved = false;
                 break;
         }
-        return false;
+        if (moved) {
+            lastDirection = direction;
+        }
+        return moved;
     }
 
 /*******************************************************************************
 //Method:       reassignValues
-//Description:  Moves the tile (if valid) and reassigns all values.
-//Parameters:   movingTileCoordinate    the tile that will move into the blank spot
+//Description:  Moves the tile (if valid) and reassigns all values. Only the
+//              moving tile changes its distance, so the Manhattan distance is
+//              updated from the table instead of being recomputed. When
+//              conflicts are tracked, only the two lines the tile leaves and
+//              enters are recounted: a vertical move changes two rows and a
+//              horizontal move changes two columns.
+//Parameters:   movingRow, movingCol    the tile that will move into the blank spot
 //Returns:      boolean             success/failure
-//Calls:        Nothing
+//Calls:        getTile
+//              setTile
+//              tileDistance
+//              PuzzleHeuristics.lineConflicts
 //Globals:      sideLength
-//              board
-//              blank
+//              blankIndex
+//              manhattanDistance
+//              linearConflict
 **/
-    public boolean reassignValues(Coordinate movingTileCoordinate) {
+    public boolean reassignValues(int movingRow, int movingCol) {
         //Check if the move is valid
-        if (movingTileCoordinate.row >= 0 && movingTileCoordinate.row < sideLength
-                && movingTileCoordinate.col >= 0 && movingTileCoordinate.col < sideLength) {
+        if (movingRow >= 0 && movingRow < sideLength
+                && movingCol >= 0 && movingCol < sideLength) {
             //Pull out the value of the moving tile
-            int movingTileValue = board[movingTileCoordinate.row][movingTileCoordinate.col];
-            //Move the tile/blank
-            board[blank.row][blank.col] = movingTileValue;
-            board[movingTileCoordinate.row][movingTileCoordinate.col] = 0;
-            //Relabel the row and col for the blank
-            blank.row = movingTileCoordinate.row;
-            blank.col = movingTileCoordinate.col;
+            int movingIndex = movingRow * sideLength + movingCol;
+            int movingTileValue = getTile(movingIndex);
+            manhattanDistance += tileDistance(movingTileValue, blankIndex)
+                    - tileDistance(movingTileValue, movingIndex);
+            boolean verticalMove = movingCol == getBlankCol();
+            int fromLine = verticalMove ? movingRow : movingCol;
+            int toLine = verticalMove ? getBlankRow() : getBlankCol();
+            if (conflictTracking) {
+                linearConflict -= PuzzleHeuristics.lineConflicts(this, verticalMove, fromLine)
+                        + PuzzleHeuristics.lineConflicts(this, verticalMove, toLine);
+            }
+            //Move the tile/blank (the blank is always stored as 0)
+            setTile(blankIndex, movingTileValue);
+            setTile(movingIndex, 0);
+            //Relabel the blank
+            blankIndex = movingIndex;
+            if (conflictTracking) {
+                linearConflict += PuzzleHeuristics.lineConflicts(this, verticalMove, fromLine)
+                        + PuzzleHeuristics.lineConflicts(this, verticalMove, toLine);
+            }
             return true;
         } else {
             return false;
@@ -129,89 +412,203 @@ public class PuzzleBoard implements Comparable<PuzzleBoard> {
 //Description:  Deep copies the PuzzleBoard object into a new object.
 //Parameters:   None
 //Returns:      Nothing
-//Calls:        copyBoardArray
+//Calls:        Nothing
 //Globals:      sideLength
 //              depth
 //              parent
 //              rawScore
 //              totalScore
-//              blank
+//              blankIndex
+//              lastDirection
+//              manhattanDistance
+//              linearConflict
+//              conflictTracking
+//              packedTiles
+//              wideTiles
 **/
     public PuzzleBoard deepCopy() {
-        PuzzleBoard copyPuzzleBoard = new PuzzleBoard(sideLength);
+        PuzzleBoard copyPuzzleBoard = new PuzzleBoard(sideLength, wideTiles);
         copyPuzzleBoard.depth = this.depth;
         copyPuzzleBoard.parent = this.parent;
-        copyPuzzleBoard.sideLength = this.sideLength;
         copyPuzzleBoard.rawScore = this.rawScore;
         copyPuzzleBoard.totalScore = this.totalScore;
-        copyPuzzleBoard.board = copyBoardArray();
-        copyPuzzleBoard.blank = new Coordinate(this.blank.row, this.blank.col);
+        copyPuzzleBoard.blankIndex = this.blankIndex;
+        copyPuzzleBoard.lastDirection = this.lastDirection;
+        copyPuzzleBoard.manhattanDistance = this.manhattanDistance;
+        copyPuzzleBoard.linearConflict = this.linearConflict;
+        copyPuzzleBoard.conflictTracking = this.conflictTracking;
+        copyPuzzleBoard.packedTiles = this.packedTiles;
         return copyPuzzleBoard;
     }
 
 /*******************************************************************************
-//Method:       copyBoardArray
-//Description:  Copies the board array for deepCopy().
+//Method:       copyFrom
+//Description:  Overwrites this board with another board of the same size
+//              without allocating, so a scratch board can be reused.
+//Parameters:   other       the board to copy
+//Returns:      Nothing
+//Calls:        Nothing
+//Globals:      depth
+//              parent
+//              rawScore
+//              totalScore
+//              blankIndex
+//              lastDirection
+//              manhattanDistance
+//              linearConflict
+//              conflictTracking
+//              packedTiles
+//              wideTiles
+**/
+    public void copyFrom(PuzzleBoard other) {
+        depth = other.depth;
+        parent = other.parent;
+        rawScore = other.rawScore;
+        totalScore = other.totalScore;
+        blankIndex = other.blankIndex;
+        lastDirection = other.lastDirection;
+        manhattanDistance = other.manhattanDistance;
+        linearConflict = other.linearConflict;
+        conflictTracking = other.conflictTracking;
+        packedTiles = other.packedTiles;
+        if (wideTiles != null) {
+            System.arraycopy(other.wideTiles, 0, wideTiles, 0, wideTiles.length);
+        }
+    }
+
+/*******************************************************************************
+//Method:       packedWordCount
+//Description:  Gets the number of longs the packed tiles take.
 //Parameters:   None
-//Returns:      int[][]     the copy array
+//Returns:      int         1 up to 4x4, more for 5x5 and up
 //Calls:        Nothing
-//Globals:      sideLength
-//              board
+//Globals:      wideTiles
+**/
+    int packedWordCount() {
+        return wideTiles == null ? 1 : wideTiles.length;
+    }
+
+/*******************************************************************************
+//Method:       writePacked
+//Description:  Copies the packed tiles into an array, so boards can be stored
+//              as plain longs (for example in files on disk).
+//Parameters:   words       the array to write to
+//              offset      the index of the first word
+//Returns:      Nothing
+//Calls:        Nothing
+//Globals:      packedTiles
+//              wideTiles
+**/
+    void writePacked(long[] words, int offset) {
+        if (wideTiles == null) {
+            words[offset] = packedTiles;
+        } else {
+            System.arraycopy(wideTiles, 0, words, offset, wideTiles.length);
+        }
+    }
+
+/*******************************************************************************
+//Method:       readPacked
+//Description:  Overwrites the tiles with packed words written by writePacked,
+//              and recomputes the blank position and the distances kept with
+//              the board.
+//Parameters:   words       the array to read from
+//              offset      the index of the first word
+//Returns:      Nothing
+//Calls:        getTile
+//              tileDistance
+//              PuzzleHeuristics.countAllConflicts
+//Globals:      packedTiles
+//              wideTiles
+//              blankIndex
+//              manhattanDistance
+//              linearConflict
 **/
-    private int[][] copyBoardArray() {
-        int[][] copyArray = new int[sideLength][sideLength];
-        for (int i = 0; i < sideLength; i++) {
-            for (int j = 0; j < sideLength; j++) {
-                copyArray[i][j] = this.board[i][j];
+    void readPacked(long[] words, int offset) {
+        if (wideTiles == null) {
+            packedTiles = words[offset];
+        } else {
+            System.arraycopy(words, offset, wideTiles, 0, wideTiles.length);
+        }
+        manhattanDistance = 0;
+        int cellCount = sideLength * sideLength;
+        for (int index = 0; index < cellCount; index++) {
+            int tileNumber = getTile(index);
+            if (tileNumber == 0) {
+                blankIndex = index;
             }
+            manhattanDistance += tileDistance(tileNumber, index);
+        }
+        if (conflictTracking) {
+            linearConflict = PuzzleHeuristics.countAllConflicts(this);
+        }
+    }
+
+/*******************************************************************************
+//Method:       PuzzleBoard
+//Description:  Copy constructor used by deepCopy so the packed words are only
+//              allocated once.
+//Parameters:   givenSideLength         the side length of the copied board
+//              givenWideTiles          the wide words to copy (null for small boards)
+//Returns:      Nothing
+//Calls:        Nothing
+//Globals:      sideLength
+//              parent
+//              wideTiles
+**/
+    private PuzzleBoard(int givenSideLength, long[] givenWideTiles) {
+        sideLength = givenSideLength;
+        parent = -1;
+        if (givenWideTiles != null) {
+            wideTiles = givenWideTiles.clone();
         }
-        return copyArray;
     }
 
 /*******************************************************************************
 //Method:       calculateHeuristic
-//Description:  Calculates the heuristic score for the current board
+//Description:  Calculates the heuristic score for the current board. The
+//              Manhattan distance and tracked conflicts are already maintained
+//              by the moves, so scoring a board with them costs O(1).
 //Parameters:   goalBoard       the goal state
-//              searchMode      1=breadth; 2=best
+//              searchMode      1=breadth; 2=best; 3=IDA*; 4=parallel IDA*; 5=HDA*;
+//                              6=bidirectional; 7=8-puzzle table;
+//                              8=weighted A*; 9=anytime A*;
+//                              10=memory-bounded A*; 11=external-memory;
+//                              12=frontier search; 13=real-time;
+//                              14=reduction; 15=EPEA*;
+//                              16=IDA* with transpositions
+//              heuristicMode   1=Manhattan; 2=linear conflict; 3=walking distance
 //              breadthScore    the number of the node
 //              useDepthPenalty whether to use the depth penalty in the heuristic
 //Returns:      Nothing
-//Calls:        Nothing
+//Calls:        PuzzleHeuristics.estimate
 //Globals:      totalScore
 //              rawScore
-//              sideLength
-//              board
+//              manhattanDistance
 //              depth
 **/
-    public void calculateHeuristic(PuzzleBoard goalBoard, int searchMode, int breadthScore, boolean useDepthPenalty) {
+    public void calculateHeuristic(PuzzleBoard goalBoard, int searchMode, int heuristicMode,
+            int breadthScore, boolean useDepthPenalty) {
         switch (searchMode) {
             case 1:
+            case 6:
+            case 7:
+            case 11:
+            case 12:
+            case 14:
                 totalScore = breadthScore;
                 break;
             case 2:
-                rawScore = 0;
-                for (int curRow = 0; curRow < sideLength; curRow++) {
-                    for (int curCol = 0; curCol < sideLength; curCol++) {
-                        int curTile = this.board[curRow][curCol];
-                        int goalTile = goalBoard.board[curRow][curCol];
-                        //End iteration if in correct spot
-                        if (curTile != goalTile && curTile != 0) {
-                            int goalRow = 0;
-                            int goalCol = 0;
-                            for (int k = 0; k < sideLength; k++) {
-                                for (int l = 0; l < sideLength; l++) {
-                                    if (curTile == goalBoard.board[k][l]) {
-                                        goalRow = k;
-                                        goalCol = l;
-                                        break;
-                                    }
-                                }
-                            }
-                            int scoreToAdd = Math.abs(curRow - goalRow) + Math.abs(curCol - goalCol);
-                            rawScore += scoreToAdd;
-                        }
-                    }
-                }
+            case 3:
+            case 4:
+            case 5:
+            case 8:
+            case 9:
+            case 10:
+            case 13:
+            case 15:
+            case 16:
+                rawScore = PuzzleHeuristics.estimate(this, heuristicMode);
                 if (useDepthPenalty) {
                     totalScore = rawScore + depth;
                 } else {
@@ -234,19 +631,19 @@ public class PuzzleBoard implements Comparable<PuzzleBoard> {
 **/
     @Override
     public int compareTo(PuzzleBoard other) {
-        Integer score1 = this.totalScore;
-        Integer score2 = other.totalScore;
-        return score1.compareTo(score2);
+        return Integer.compare(this.totalScore, other.totalScore);
     }
 
 /*******************************************************************************
 //Method:       equals
-//Description:  Compares two PuzzleBoard objects for equality.
+//Description:  Compares two PuzzleBoard objects for equality by comparing the
+//              packed words directly.
 //Parameters:   other   the object to be compared to
 //Returns:      boolean     true=equal; false=not equal
 //Calls:        Nothing
 //Globals:      sideLength
-//              board
+//              packedTiles
+//              wideTiles
 **/
     @Override
     public boolean equals(Object other) {
@@ -259,54 +656,26 @@ public class PuzzleBoard implements Comparable<PuzzleBoard> {
         }
 
         PuzzleBoard that = (PuzzleBoard) other;
-        for (int i = 0; i < this.sideLength; i++) {
-            for (int j = 0; j < this.sideLength; j++) {
-                if (this.board[i][j] != that.board[i][j]) {
-                    return false;
-                }
-            }
-        }
-        return true;
+        return this.sideLength == that.sideLength
+                && this.packedTiles == that.packedTiles
+                && Arrays.equals(this.wideTiles, that.wideTiles);
     }
 
-    @Override
-    public int hashCode() {
-        return 0;
-    }
-
-/********************************************************************************
-//*******************************************************************************
-//Class:        Coordinate
-//Description:  This class contains coordinate values  as rows and columns.
-**/
-    public class Coordinate {
-
-        public int row;
-        public int col;
-
 /*******************************************************************************
-//Method:       Coordinate
-//Description:  Empty constructor.
+//Method:       hashCode
+//Description:  Hashes the packed words so boards can be kept in hashed sets.
 //Parameters:   None
-//Returns:      Nothing
+//Returns:      int         the hash of the board
 //Calls:        Nothing
-//Globals:      None
+//Globals:      packedTiles
+//              wideTiles
 **/
-        public Coordinate() {
-
-        }
-
-/*******************************************************************************
-//Method:       Coordinate
-//Description:  Constructor with given values for row and col.
-//Parameters:   int r, int c    Given row and col values.
-//Returns:      Nothing
-//Calls:        None
-//Globals:      row, col
-**/
-        Coordinate(int r, int c) {
-            row = r;
-            col = c;
+    @Override
+    public int hashCode() {
+        if (wideTiles != null) {
+            return Arrays.hashCode(wideTiles);
         }
+        long mixed = packedTiles * 0x9E3779B97F4A7C15L;
+        return (int) (mixed ^ (mixed >>> 32));
     }
-}
\ No newline at end of file
+}
@@ -21,12 +21,13 @@ public class PuzzleGameUserInput {
         boolean validSize = false;
         while (!validSize) {
             //Get the size of the puzzle from the user
-            puzzleSize = keyboardInput.getInteger(true, 0, 8, 35,
-                    "Specify the puzzle size (8, 15, 24, or 35: 0 to exit):");
-
-            if (puzzleSize == 8 || puzzleSize == 15
-                    || puzzleSize == 24 || puzzleSize == 35) {
-                TilePuzzleSolver.sideLength = (int) Math.sqrt((double) puzzleSize + 1);
+            int maxSize = PuzzleBoard.MAX_SIDE * PuzzleBoard.MAX_SIDE - 1;
+            puzzleSize = keyboardInput.getInteger(true, 0, 8, maxSize,
+                    "Specify the puzzle size (8, 15, 24, 35, ... " + maxSize
+                    + "; past 35 the reduction solver is used: 0 to exit):");
+            int side = (int) Math.round(Math.sqrt((double) puzzleSize + 1));
+            if (puzzleSize > 0 && side * side == puzzleSize + 1) {
+                TilePuzzleSolver.sideLength = side;
                 validSize = true;
             } else if (puzzleSize == 0) {
                 puzzleSize = 0;
@@ -37,47 +38,86 @@ public class PuzzleGameUserInput {
     }
 
     static PuzzleBoard getUserDefinedBoard(int puzzleSize, int sideLength) {
-        ArrayList numbersAlreadyUsed = new ArrayList();
-        PuzzleBoard tempBoard = new PuzzleBoard(sideLength);
-        //Get the user defined board
-        int[][] boardArray = new int[sideLength][sideLength];
-        System.out.println("Enter the piece number for the specified board position (open position=0):");
-        for (int i = 0; i < sideLength; i++) {
-            for (int j = 0; j < sideLength; j++) {
-                boolean allowedTileNumber = false;
-                while (!allowedTileNumber) {
-                    String prompt = "Row " + (i + 1) + ", column " + (j + 1) + ":";
-                    int tileNumber = keyboardInput.getInteger(true, 0, 0, puzzleSize, prompt);
-                    if (!numbersAlreadyUsed.contains(tileNumber)) {
-                        allowedTileNumber = true;
-                        boardArray[i][j] = tileNumber;
-                        numbersAlreadyUsed.add(tileNumber);
-                        if (tileNumber == 0) {
-                            tempBoard.blank.row = i;
-                            tempBoard.blank.col = j;
+        PuzzleBoard tempBoard = null;
+        boolean solvableBoard = false;
+        while (!solvableBoard) {
+            ArrayList numbersAlreadyUsed = new ArrayList();
+            tempBoard = new PuzzleBoard(sideLength);
+            //Get the user defined board
+            System.out.println("Enter the piece number for the specified board position (open position=0):");
+            for (int i = 0; i < sideLength; i++) {
+                for (int j = 0; j < sideLength; j++) {
+                    boolean allowedTileNumber = false;
+                    while (!allowedTileNumber) {
+                        String prompt = "Row " + (i + 1) + ", column " + (j + 1) + ":";
+                        int tileNumber = keyboardInput.getInteger(true, 0, 0, puzzleSize, prompt);
+                        if (!numbersAlreadyUsed.contains(tileNumber)) {
+                            allowedTileNumber = true;
+                            tempBoard.setTile(i, j, tileNumber);
+                            numbersAlreadyUsed.add(tileNumber);
+                        } else {
+                            allowedTileNumber = false;
+                            System.out.println("The number " + tileNumber
+                                    + " has already been used."
+                                    + "Please enter another number:");
                         }
-                    } else {
-                        allowedTileNumber = false;
-                        System.out.println("The number " + tileNumber
-                                + " has already been used."
-                                + "Please enter another number:");
                     }
                 }
             }
+            //Half of all boards can never reach the goal, so reject them before searching
+            solvableBoard = tempBoard.isSolvable();
+            if (!solvableBoard) {
+                System.out.println("That board cannot reach the goal state. Please enter another board:");
+            }
         }
-        tempBoard.board = boardArray;
         return tempBoard;
     }
 
     static int getNumberOfShuffleMoves() {
-        return keyboardInput.getInteger(true, -1, 1, 5000,
-                "Number of shuffle moves desired?"
-                + "(press ENTER alone to specify starting board)");
+        return keyboardInput.getInteger(true, -1, 0, 5000,
+                "Number of shuffle moves desired? (0 for a uniformly random board; "
+                + "press ENTER alone to specify starting board)");
     }
 
     static int getSearchMode() {
+        return keyboardInput.getInteger(true, 1, 1, 16,
+                "Search mode (1=breadth-first (default); 2=best-first; 3=IDA*; 4=parallel IDA*;"
+                + " 5=parallel A* (HDA*); 6=bidirectional breadth-first; 7=distance table (8-puzzle);"
+                + " 8=weighted A*; 9=anytime A*; 10=memory-bounded A*; 11=external-memory breadth-first;"
+                + " 12=frontier search; 13=real-time (LRTA*); 14=reduction (fast, large boards);"
+                + " 15=partial-expansion A* (EPEA*); 16=IDA* with a transposition table):");
+    }
+
+    static int getLookaheadDepth() {
+        return keyboardInput.getInteger(true, RealTimeSearch.DEFAULT_LOOKAHEAD, 1, 30,
+                "Lookahead per move (deeper=better moves but slower ones; default="
+                + RealTimeSearch.DEFAULT_LOOKAHEAD + "):");
+    }
+
+    static int getTrials() {
+        return keyboardInput.getInteger(true, 1, 1, 1000,
+                "Trials from the start state (each one learns from the last; default=1):");
+    }
+
+    static double getWeight() {
+        return keyboardInput.getDouble(true, 2.0, 1.0, 100.0,
+                "Heuristic weight (1=optimal; larger=faster but longer solutions; default=2):");
+    }
+
+    static long getDeadline() {
+        return keyboardInput.getLong(true, 0, 0, Long.MAX_VALUE,
+                "Time limit in milliseconds (press ENTER alone for none):");
+    }
+
+    static int getOpenListMode() {
         return keyboardInput.getInteger(true, 1, 1, 2,
-                "Search mode (1=breadth-first (default); 2=best-first):");
+                "Open list (1=binary heap (default); 2=bucket queue):");
+    }
+
+    static int getHeuristicMode() {
+        return keyboardInput.getInteger(true, 1, 1, 4,
+                "Heuristic (1=Manhattan (default); 2=linear conflict; 3=walking distance"
+                + " (4x4 and smaller); 4=pattern database):");
     }
 
     static boolean shouldStepThroughSolution() {
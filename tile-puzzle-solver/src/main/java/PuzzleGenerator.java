@@ -0,0 +1,112 @@
+/********************************************************************************
+//*******************************************************************************
+//Class:        PuzzleGenerator
+//Description:  This is the random instance generator for the tile puzzle
+//              solver. It draws start states uniformly from every solvable
+//              board, rather than walking a few random moves from the goal
+//              (which only reaches shallow boards). The same seed always gives
+//              the same boards, so benchmark files can be rebuilt.
+//
+//              Write an instance file for BatchPuzzleSolver with:
+//                  java PuzzleGenerator <side> <count> [seed]
+**/
+
+import java.util.Random;
+
+public class PuzzleGenerator {
+
+    private PuzzleGenerator() {
+        throw new IllegalStateException("Utility class");
+    }
+
+/*******************************************************************************
+//Method:       main
+//Description:  Prints random solvable boards, one per line.
+//Parameters:   args        side length, board count and optional seed
+//Returns:      Nothing
+//Calls:        randomSolvableBoard
+//Globals:      None
+**/
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.out.println("Usage: java PuzzleGenerator <side> <count> [seed]");
+            return;
+        }
+        int side = Integer.parseInt(args[0]);
+        int count = Integer.parseInt(args[1]);
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : System.nanoTime();
+        if (side < 2 || side > PuzzleBoard.MAX_SIDE || count < 0) {
+            System.out.println("The side must be 2 to " + PuzzleBoard.MAX_SIDE + " and the count at least 0");
+            return;
+        }
+        Random random = new Random(seed);
+        System.out.println("# " + count + " random solvable " + side + "x" + side + " boards, seed " + seed);
+        for (int i = 0; i < count; i++) {
+            PuzzleBoard board = randomSolvableBoard(side, random);
+            StringBuilder line = new StringBuilder();
+            for (int cell = 0; cell < side * side; cell++) {
+                if (cell > 0) {
+                    line.append(' ');
+                }
+                line.append(board.getTile(cell));
+            }
+            System.out.println(line);
+        }
+    }
+
+/*******************************************************************************
+//Method:       randomSolvableBoard
+//Description:  Draws a board uniformly from the solvable boards. A uniform
+//              shuffle is drawn first. If it is unsolvable, swapping its two
+//              first tiles makes it solvable. That swap pairs every
+//              unsolvable board with exactly one solvable board, so the result
+//              stays uniform.
+//Parameters:   side        the side length
+//              random      the random source
+//Returns:      PuzzleBoard the board
+//Calls:        PuzzleBoard.setTile
+//              PuzzleBoard.isSolvable
+//Globals:      None
+**/
+    static PuzzleBoard randomSolvableBoard(int side, Random random) {
+        int cellCount = side * side;
+        int[] cells = new int[cellCount];
+        for (int cell = 0; cell < cellCount; cell++) {
+            cells[cell] = cell;
+        }
+        //Fisher-Yates shuffle
+        for (int cell = cellCount - 1; cell > 0; cell--) {
+            int other = random.nextInt(cell + 1);
+            int tile = cells[cell];
+            cells[cell] = cells[other];
+            cells[other] = tile;
+        }
+        PuzzleBoard board = buildBoard(side, cells);
+        if (!board.isSolvable()) {
+            int first = cells[0] == 0 ? 1 : 0;
+            int second = cells[first + 1] == 0 ? first + 2 : first + 1;
+            int tile = cells[first];
+            cells[first] = cells[second];
+            cells[second] = tile;
+            board = buildBoard(side, cells);
+        }
+        return board;
+    }
+
+/*******************************************************************************
+//Method:       buildBoard
+//Description:  Builds a board from the tile in each cell.
+//Parameters:   side        the side length
+//              cells       the tile in each cell (0=blank)
+//Returns:      PuzzleBoard the board
+//Calls:        PuzzleBoard.setTile
+//Globals:      None
+**/
+    private static PuzzleBoard buildBoard(int side, int[] cells) {
+        PuzzleBoard board = new PuzzleBoard(side);
+        for (int cell = 0; cell < cells.length; cell++) {
+            board.setTile(cell / side, cell % side, cells[cell]);
+        }
+        return board;
+    }
+}
@@ -0,0 +1,195 @@
+/********************************************************************************
+//*******************************************************************************
+//Class:        PuzzleHeuristics
+//Description:  This is the heuristic object for the tile puzzle solver. It
+//              contains the admissible estimates that can be selected next to
+//              the search mode: plain Manhattan distance, Manhattan distance
+//              plus linear conflicts, Takahashi's walking distance, and the
+//              additive pattern databases built by PatternDatabase.
+**/
+
+public class PuzzleHeuristics {
+
+    // <editor-fold defaultstate="collapsed" desc="Global Variables">
+    static final int MANHATTAN = 1;//Sum of tile distances from their goal cells
+    static final int LINEAR_CONFLICT = 2;//Manhattan plus two moves per line conflict
+    static final int WALKING_DISTANCE = 3;//Walking distance, or linear conflict when larger
+    static final int PATTERN_DATABASE = 4;//Additive pattern database mapped from disk
+    static final int MAX_WALKING_DISTANCE_SIDE = 4;//Largest side with walking distance tables
+    // </editor-fold>
+
+    private PuzzleHeuristics() {
+        throw new IllegalStateException("Utility class");
+    }
+
+/*******************************************************************************
+//Method:       estimate
+//Description:  Estimates the number of moves left to reach the goal.
+//Parameters:   board           the board to estimate
+//              heuristicMode   1=Manhattan; 2=linear conflict; 3=walking distance;
+//                              4=pattern database
+//Returns:      int             the admissible estimate
+//Calls:        linearConflict
+//              walkingDistance
+//              PatternDatabase.forSide
+//Globals:      None
+**/
+    static int estimate(PuzzleBoard board, int heuristicMode) {
+        switch (heuristicMode) {
+            case LINEAR_CONFLICT:
+                return board.manhattanDistance + linearConflict(board);
+            case WALKING_DISTANCE:
+                if (board.sideLength > MAX_WALKING_DISTANCE_SIDE) {
+                    //The tables get too large past 4x4, so fall back to linear conflict
+                    return board.manhattanDistance + linearConflict(board);
+                }
+                //Both estimates are admissible, so the larger one is too
+                return Math.max(walkingDistance(board), board.manhattanDistance + linearConflict(board));
+            case PATTERN_DATABASE:
+                PatternDatabase database = PatternDatabase.forSide(board.sideLength);
+                if (database == null) {
+                    //No tables were loaded for this size, so fall back to linear conflict
+                    return board.manhattanDistance + linearConflict(board);
+                }
+                return database.estimate(board);
+            default:
+                return board.manhattanDistance;
+        }
+    }
+
+/*******************************************************************************
+//Method:       getName
+//Description:  Gets a readable name for a heuristic mode.
+//Parameters:   heuristicMode   1=Manhattan; 2=linear conflict; 3=walking distance;
+//                              4=pattern database
+//Returns:      String          the name
+//Calls:        Nothing
+//Globals:      None
+**/
+    static String getName(int heuristicMode) {
+        switch (heuristicMode) {
+            case LINEAR_CONFLICT:
+                return "linear conflict";
+            case WALKING_DISTANCE:
+                return "walking distance";
+            case PATTERN_DATABASE:
+                return "pattern database";
+            default:
+                return "Manhattan";
+        }
+    }
+
+/*******************************************************************************
+//Method:       linearConflict
+//Description:  Gets the linear conflict penalty of a board. Boards that track
+//              their conflicts on every move return the stored value; other
+//              boards have every row and column counted.
+//Parameters:   board       the board to score
+//Returns:      int         the extra moves forced by conflicts
+//Calls:        lineConflicts
+//Globals:      None
+**/
+    static int linearConflict(PuzzleBoard board) {
+        if (board.tracksConflicts()) {
+            return board.linearConflict;
+        }
+        return countAllConflicts(board);
+    }
+
+/*******************************************************************************
+//Method:       countAllConflicts
+//Description:  Counts the linear conflict penalty over every row and column.
+//Parameters:   board       the board to score
+//Returns:      int         the extra moves forced by conflicts
+//Calls:        lineConflicts
+//Globals:      None
+**/
+    static int countAllConflicts(PuzzleBoard board) {
+        int conflicts = 0;
+        for (int line = 0; line < board.sideLength; line++) {
+            conflicts += lineConflicts(board, true, line) + lineConflicts(board, false, line);
+        }
+        return conflicts;
+    }
+
+/*******************************************************************************
+//Method:       lineConflicts
+//Description:  Counts the conflict penalty of one row or column. Tiles that
+//              sit in their goal line but not in goal order must leave the
+//              line and come back, costing two extra moves each. The fewest
+//              tiles that have to leave is the line count minus the longest
+//              run of tiles already in increasing goal order.
+//Parameters:   board       the board to score
+//              isRow       true=score a row; false=score a column
+//              line        the row or column number
+//Returns:      int         the extra moves forced by this line
+//Calls:        Nothing
+//Globals:      None
+**/
+    static int lineConflicts(PuzzleBoard board, boolean isRow, int line) {
+        int side = board.sideLength;
+        int tilesInLine = 0;
+        int longestRun = 0;
+        long runLengths = 0;//4 bits per cell: longest increasing run ending at that cell
+        for (int i = 0; i < side; i++) {
+            int goalPosition = goalPositionInLine(board, isRow, line, i);
+            if (goalPosition < 0) {
+                continue;
+            }
+            tilesInLine++;
+            int runLength = 1;
+            for (int j = 0; j < i; j++) {
+                int earlierPosition = goalPositionInLine(board, isRow, line, j);
+                if (earlierPosition >= 0 && earlierPosition < goalPosition) {
+                    runLength = Math.max(runLength, (int) ((runLengths >>> (j << 2)) & 0xF) + 1);
+                }
+            }
+            runLengths |= (long) runLength << (i << 2);
+            longestRun = Math.max(longestRun, runLength);
+        }
+        return 2 * (tilesInLine - longestRun);
+    }
+
+/*******************************************************************************
+//Method:       goalPositionInLine
+//Description:  Finds where the tile at a cell of a line belongs inside that
+//              same line.
+//Parameters:   board       the board to read
+//              isRow       true=the line is a row; false=a column
+//              line        the row or column number
+//              offset      the cell inside the line
+//Returns:      int         the goal offset, or -1 for the blank or tiles from
+//                          other lines
+//Calls:        Nothing
+//Globals:      None
+**/
+    private static int goalPositionInLine(PuzzleBoard board, boolean isRow, int line, int offset) {
+        int side = board.sideLength;
+        int tile = isRow ? board.getTile(line, offset) : board.getTile(offset, line);
+        if (tile == 0) {
+            return -1;
+        }
+        int goalRow = (tile - 1) / side;
+        int goalCol = (tile - 1) % side;
+        if (isRow) {
+            return goalRow == line ? goalCol : -1;
+        }
+        return goalCol == line ? goalRow : -1;
+    }
+
+/*******************************************************************************
+//Method:       walkingDistance
+//Description:  Looks up Takahashi's walking distance: the vertical moves
+//              needed when tiles are only told apart by their goal row, plus
+//              the same count for columns.
+//Parameters:   board       the board to score
+//Returns:      int         the walking distance
+//Calls:        WalkingDistanceTable.forSide
+//Globals:      None
+**/
+    static int walkingDistance(PuzzleBoard board) {
+        WalkingDistanceTable table = WalkingDistanceTable.forSide(board.sideLength);
+        return table.distance(WalkingDistanceTable.encode(board, true))
+                + table.distance(WalkingDistanceTable.encode(board, false));
+    }
+}
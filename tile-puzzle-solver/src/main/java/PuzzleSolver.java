@@ -0,0 +1,434 @@
+/********************************************************************************
+//*******************************************************************************
+//Class:        PuzzleSolver
+//Description:  This is the search engine for the tile puzzle solver. All of
+//              the search state (open, closed, the goal and the counters)
+//              belongs to one instance, so several puzzles can be solved at
+//              the same time in one JVM. TilePuzzleSolver drives one engine
+//              from the keyboard and BatchPuzzleSolver drives many in
+//              parallel.
+**/
+
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.PriorityQueue;
+import java.util.Queue;
+
+public class PuzzleSolver {
+
+    // <editor-fold defaultstate="collapsed" desc="Global Variables">
+    static final int MAX_SEARCH_SIDE = 6;//Largest side the search modes can take on; larger boards are reduced
+    static final int BYTES_PER_NODE = 160;//Rough heap cost of one stored board with its open/closed entries
+
+    //Search settings
+    int searchMode = 1;//1=breadth-first; 2=best-first; 3=IDA*; 4=parallel IDA*; 5=HDA*; 6=bidirectional; 7=8-puzzle table;
+                        //8=weighted A*; 9=anytime A*; 10=memory-bounded A*; 11=external-memory breadth-first;
+                        //12=frontier search; 13=real-time (LRTA*); 14=reduction (large boards);
+                        //15=partial-expansion A* (EPEA*); 16=IDA* with a transposition table
+    int heuristicMode = PuzzleHeuristics.MANHATTAN;//1=Manhattan; 2=linear conflict; 3=walking; 4=pattern DB
+    int openListMode = 1;//1=binary heap; 2=bucket queue
+    boolean useDepthPenalty = true;//States whether to use the depth penalty
+    boolean useMovePruning = true;//States whether tree searches prune redundant move sequences (false=only undoing a move)
+    boolean showProgress = true;//States whether to print progress messages
+    long nodeLimit;//Most boards open and closed may hold together (0=no limit)
+    int parallelism = Runtime.getRuntime().availableProcessors();//Worker threads for parallel IDA* and HDA*
+    double weight = 2.0;//Heuristic weight for weighted and anytime A* (1=plain A*)
+    long deadlineMillis;//Time limit for weighted and anytime A* and real-time search (0=none)
+    int lookaheadDepth = RealTimeSearch.DEFAULT_LOOKAHEAD;//Moves the real-time mode looks ahead per move
+    int realTimeTrials = 1;//Most trials the real-time mode runs from the start state
+    RealTimeSearch.MoveListener moveListener;//Receives real-time moves as they are committed (null=none)
+    AnytimeSearch.SolutionListener solutionListener;//Receives anytime solutions as they improve (null=none)
+
+    //Search results
+    int totalBoardsCreated;//Tracks total number of boards built
+    long nodesExpanded;//Tracks nodes expanded by the search
+    int iterationsRun;//Tracks the deepening iterations run by (parallel) IDA*
+    int peakOpenSize;//Tracks the largest size open reached
+    int searchClosedSize;//Tracks the boards held in a search's own closed table (HDA* workers, EPEA*)
+    boolean budgetExceeded;//States whether the search stopped at the node limit
+    boolean unsolvable;//States whether the start state cannot reach the goal
+    boolean deadlineReached;//States whether the search stopped at its deadline
+    double suboptimalityBound = 1.0;//Proven bound on solution length over the optimal one
+    boolean cacheHit;//States whether the solution came from the solution cache
+    long worstMoveNanos;//Tracks the slowest move the real-time mode committed
+
+    //Special objects
+    final PuzzleBoard goalBoard;//Goal state
+    final PuzzleBoard gameBoard;//Start state
+    private PuzzleBoard probeBoard;//Scratch board for trying moves before copying
+    MovePruningMachine moveMachine;//Move sequences the tree searches skip
+    SolutionCache solutionCache;//Optimal solutions of earlier searches (null=none)
+
+    //List objects
+    Queue<PuzzleBoard> open = new PriorityQueue<>();//Nodes yet to be evaluated
+    ArrayList<PuzzleBoard> closed = new ArrayList<>();//Nodes already evaluated
+    HashMap<PuzzleBoard, Integer> closedIndex = new HashMap<>();//Index of each board in closed
+    Deque<PuzzleBoard> solutionPath = new LinkedList<>();//Nodes in solution
+    // </editor-fold>
+
+/*******************************************************************************
+//Method:       PuzzleSolver
+//Description:  Builds an engine for one start state.
+//Parameters:   startBoard      the start state
+//Returns:      Nothing
+//Calls:        PuzzleBoard.generateGoalState
+//Globals:      goalBoard
+//              gameBoard
+**/
+    public PuzzleSolver(PuzzleBoard startBoard) {
+        gameBoard = startBoard;
+        goalBoard = new PuzzleBoard(startBoard.sideLength);
+        goalBoard.generateGoalState();
+    }
+
+/*******************************************************************************
+//Method:       setMemoryBudget
+//Description:  Limits the boards the search may hold to fit a heap budget.
+//Parameters:   budgetBytes     the heap budget in bytes (0=no limit)
+//Returns:      Nothing
+//Calls:        Nothing
+//Globals:      nodeLimit
+**/
+    void setMemoryBudget(long budgetBytes) {
+        nodeLimit = budgetBytes / BYTES_PER_NODE;
+    }
+
+    void prepareSearch() {
+        //The distance table only covers the 8-puzzle
+        if (searchMode == 7 && gameBoard.sideLength != EightPuzzleTable.SIDE) {
+            printProgress("The distance table only covers the 8-puzzle; using IDA*");
+            searchMode = 3;
+        }
+        //Past 6x6 only the real-time walk and the reduction solver finish in reasonable time
+        if (gameBoard.sideLength > MAX_SEARCH_SIDE && searchMode != 13 && searchMode != 14) {
+            printProgress("Boards past " + MAX_SEARCH_SIDE + "x" + MAX_SEARCH_SIDE
+                    + " are too large to search; using the reduction solver");
+            searchMode = 14;
+        }
+        //The tree searches and the real-time lookahead have no closed list, so they skip redundant move sequences instead
+        if (searchMode == 3 || searchMode == 4 || searchMode == 10 || searchMode == 13 || searchMode == 16) {
+            //IDA* with transpositions keys its table by pruning state, so it only skips undoing a move
+            moveMachine = MovePruningMachine.load(useMovePruning && searchMode != 16);
+        }
+        //Best-first scores are small bounded integers, so they can be bucketed
+        if (searchMode == 2 && openListMode == 2) {
+            open = new BucketQueue();
+        }
+        if (usesHeuristic()) {
+            if (heuristicMode == PuzzleHeuristics.LINEAR_CONFLICT) {
+                gameBoard.enableConflictTracking();
+            }
+            if (heuristicMode == PuzzleHeuristics.PATTERN_DATABASE) {
+                loadPatternDatabase();
+            }
+        }
+        //Greedy best-first gives no guarantee on the solution length
+        if (searchMode == 2 && !useDepthPenalty) {
+            suboptimalityBound = Double.POSITIVE_INFINITY;
+        }
+        //Calculate heuristics
+        goalBoard.calculateHeuristic(goalBoard, searchMode, heuristicMode, 0, useDepthPenalty);
+        gameBoard.calculateHeuristic(goalBoard, searchMode, heuristicMode, 0, useDepthPenalty);
+    }
+
+    void runSearch() {
+        //Boards of the wrong parity would make every search run until it exhausts its space
+        if (!gameBoard.isSolvable()) {
+            unsolvable = true;
+            printProgress("No solution: the start state cannot reach the goal state");
+            return;
+        }
+        //A board solved before (or its mirror image) is only a lookup
+        if (solutionCache != null) {
+            int[] cachedMoves = solutionCache.get(gameBoard);
+            if (cachedMoves != null) {
+                cacheHit = true;
+                suboptimalityBound = 1.0;
+                printProgress("Found in the solution cache");
+                buildSolutionPath(cachedMoves, cachedMoves.length);
+                return;
+            }
+        }
+        if (searchMode == 3) {
+            beginIterativeDeepeningSearch();
+        } else if (searchMode == 4) {
+            printProgress("Working on " + parallelism + " threads...");
+            new ParallelIdaStarSearch(this).search(parallelism);
+        } else if (searchMode == 5) {
+            printProgress("Working on " + parallelism + " threads...");
+            new HashDistributedSearch(this, parallelism).search();
+        } else if (searchMode == 6) {
+            printProgress("Working...");
+            new BidirectionalSearch(this).search();
+        } else if (searchMode == 7) {
+            descendDistanceTable();
+        } else if (searchMode == 8 || searchMode == 9) {
+            printProgress("Working...");
+            new AnytimeSearch(this, searchMode == 9).search();
+        } else if (searchMode == 10) {
+            printProgress("Working...");
+            new MemoryBoundedSearch(this).search();
+        } else if (searchMode == 11) {
+            printProgress("Working...");
+            new ExternalMemorySearch(this).search();
+        } else if (searchMode == 12) {
+            printProgress("Working...");
+            new FrontierSearch(this).search();
+        } else if (searchMode == 13) {
+            printProgress("Working...");
+            new RealTimeSearch(this).search();
+        } else if (searchMode == 14) {
+            new ReductionSearch(this).search();
+        } else if (searchMode == 15) {
+            printProgress("Working...");
+            new PartialExpansionSearch(this).search();
+        } else if (searchMode == 16) {
+            printProgress("Working...");
+            new TranspositionIdaSearch(this).search();
+        } else {
+            beginSearch();
+        }
+        //Only solutions proven optimal are worth answering later queries with
+        if (solutionCache != null && !solutionPath.isEmpty() && suboptimalityBound == 1.0) {
+            solutionCache.put(gameBoard, getSolutionMoves());
+        }
+    }
+
+    boolean usesHeuristic() {
+        return searchMode != 1 && searchMode != 6 && searchMode != 7 && searchMode != 11
+                && searchMode != 12 && searchMode != 14;
+    }
+
+    private void loadPatternDatabase() {
+        int sideLength = gameBoard.sideLength;
+        if (PatternDatabase.loadForSide(sideLength)) {
+            printProgress("Using the " + PatternDatabase.forSide(sideLength).getPartitionName()
+                    + " pattern database from " + PatternDatabase.getDefaultDirectory());
+        } else {
+            //Fall back to linear conflict, which the estimate does on its own
+            printProgress("No pattern database found in " + PatternDatabase.getDefaultDirectory()
+                    + " (build one with: java PatternDatabase <partition>); using linear conflict");
+            gameBoard.enableConflictTracking();
+        }
+    }
+
+    private void beginSearch() {
+        //Tell the user that the search has starting
+        printProgress("Working...");
+        //Add the first board to open (it has no move to undo)
+        gameBoard.lastDirection = -1;
+        open.add(gameBoard);
+        probeBoard = gameBoard.deepCopy();
+        //Loop to find solution
+        boolean foundSolution = false;
+        while (!foundSolution) {
+            //Stop once the boards held would go over the memory budget
+            if (nodeLimit > 0 && closed.size() + (long) open.size() > nodeLimit) {
+                budgetExceeded = true;
+                printProgress("Stopped: the search went over its memory budget");
+                return;
+            }
+            //Pull in the board at the front of the queue (an empty queue means no path)
+            PuzzleBoard curBoard = open.poll();
+            if (curBoard == null) {
+                unsolvable = true;
+                printProgress("No solution: the start state cannot reach the goal state");
+                return;
+            }
+            //Skip the board if it was already expanded by another path
+            if (closedIndex.containsKey(curBoard)) {
+                continue;
+            }
+            //Check if the current board is the goal board
+            foundSolution = curBoard.equals(goalBoard);
+            //Add the current board to closed and remember its index (parent index)
+            nodesExpanded++;
+            closed.add(curBoard);
+            int curParentIndex = closed.size() - 1;
+            closedIndex.put(curBoard, curParentIndex);
+            //If the solution is found, build the path... else, continue searching
+            if (foundSolution) {
+                buildSolutionPath(curBoard);
+            } else {
+                generateMoves(curBoard, curParentIndex);
+                peakOpenSize = Math.max(peakOpenSize, open.size());
+            }
+        }
+    }
+
+    private void generateMoves(PuzzleBoard curBoard, int curParentIndex) {
+        for (int directionToMove = 0; directionToMove < 4; directionToMove++) {
+            //Check the move from the blank position and skip undoing the last move
+            if (!curBoard.canMove(directionToMove)
+                    || directionToMove == oppositeDirection(curBoard.lastDirection)) {
+                continue;
+            }
+            //Try the move on the scratch board so duplicates never allocate
+            probeBoard.copyFrom(curBoard);
+            probeBoard.moveTile(directionToMove);
+            //Check for uniqueness
+            boolean uniqueBoard = !closedIndex.containsKey(probeBoard);
+            //If unique, copy the board and add it to open (calculate the score first)
+            if (uniqueBoard) {
+                PuzzleBoard tempBoard = probeBoard.deepCopy();
+                //Assign the parent index and increment the depth
+                tempBoard.parent = curParentIndex;
+                tempBoard.depth++;
+                totalBoardsCreated++;
+                tempBoard.calculateHeuristic(goalBoard, searchMode, heuristicMode,
+                        totalBoardsCreated, useDepthPenalty);
+                open.add(tempBoard);
+            }
+        }
+    }
+
+    private void beginIterativeDeepeningSearch() {
+        //Tell the user that the search has starting
+        printProgress("Working...");
+        //Search on a single board that is moved and unmoved in place
+        PuzzleBoard searchBoard = gameBoard.deepCopy();
+        searchBoard.calculateHeuristic(goalBoard, searchMode, heuristicMode, 0, false);
+        int threshold = searchBoard.rawScore;
+        int solutionDepth = -1;
+        int[] pathMoves = new int[0];
+        //Deepen the f-value threshold until the goal is inside it
+        while (solutionDepth < 0) {
+            iterationsRun++;
+            pathMoves = new int[threshold + 1];
+            int result = depthLimitedSearch(searchBoard, 0, threshold, MovePruningMachine.START, pathMoves);
+            if (result < 0) {
+                solutionDepth = -result - 1;
+            } else {
+                threshold = result;
+            }
+        }
+        buildSolutionPath(pathMoves, solutionDepth);
+    }
+
+    private int depthLimitedSearch(PuzzleBoard board, int pathDepth, int threshold,
+            int machineState, int[] pathMoves) {
+        //Cut off the branch if its f-value is over the threshold
+        board.calculateHeuristic(goalBoard, searchMode, heuristicMode, 0, false);
+        int estimate = pathDepth + board.rawScore;
+        if (estimate > threshold) {
+            return estimate;
+        }
+        //A found goal is returned as a negative value holding its depth
+        if (board.equals(goalBoard)) {
+            return -pathDepth - 1;
+        }
+        nodesExpanded++;
+        int nextThreshold = Integer.MAX_VALUE;
+        for (int directionToMove = 0; directionToMove < 4; directionToMove++) {
+            //Never undo the move that led here or take a sequence a shorter or earlier one repeats
+            int nextState = moveMachine.next(machineState, directionToMove);
+            if (nextState == MovePruningMachine.PRUNED) {
+                continue;
+            }
+            if (board.moveTile(directionToMove)) {
+                pathMoves[pathDepth] = directionToMove;
+                int result = depthLimitedSearch(board, pathDepth + 1, threshold, nextState, pathMoves);
+                if (result < 0) {
+                    return result;
+                }
+                board.moveTile(oppositeDirection(directionToMove));
+                nextThreshold = Math.min(nextThreshold, result);
+            }
+        }
+        return nextThreshold;
+    }
+
+    private void descendDistanceTable() {
+        EightPuzzleTable table = EightPuzzleTable.load();
+        PuzzleBoard curBoard = gameBoard.deepCopy();
+        int distance = table.distance(curBoard);
+        if (distance == EightPuzzleTable.UNREACHABLE) {
+            printProgress("No solution: the start state cannot reach the goal state");
+            return;
+        }
+        //Every board on a shortest path has a neighbor one move closer
+        while (true) {
+            curBoard.rawScore = distance;
+            curBoard.totalScore = curBoard.depth + distance;
+            solutionPath.addLast(curBoard);
+            if (distance == 0) {
+                return;
+            }
+            nodesExpanded++;
+            for (int directionToMove = 0; directionToMove < 4; directionToMove++) {
+                PuzzleBoard tempBoard = curBoard.deepCopy();
+                if (tempBoard.moveTile(directionToMove) && table.distance(tempBoard) == distance - 1) {
+                    tempBoard.depth++;
+                    curBoard = tempBoard;
+                    break;
+                }
+            }
+            distance--;
+        }
+    }
+
+/*******************************************************************************
+//Method:       getSolutionMoves
+//Description:  Reads the moves of the solution path off the blank positions
+//              of its boards, which every search mode fills in.
+//Parameters:   None
+//Returns:      int[]       the moves (0=up; 1=right; 2=down; 3=left)
+//Calls:        Nothing
+//Globals:      solutionPath
+**/
+    int[] getSolutionMoves() {
+        int[] moves = new int[solutionPath.size() - 1];
+        int side = gameBoard.sideLength;
+        int previousBlank = -1;
+        int i = 0;
+        for (PuzzleBoard board : solutionPath) {
+            if (previousBlank >= 0) {
+                int step = board.blankIndex - previousBlank;
+                moves[i++] = step == -side ? 0 : step == 1 ? 1 : step == side ? 2 : 3;
+            }
+            previousBlank = board.blankIndex;
+        }
+        return moves;
+    }
+
+    static int oppositeDirection(int direction) {
+        return direction < 0 ? -1 : (direction + 2) % 4;
+    }
+
+    void buildSolutionPath(int[] pathMoves, int solutionDepth) {
+        //Replay the moves from the start state to rebuild each board
+        PuzzleBoard tempBoard = gameBoard.deepCopy();
+        solutionPath.addLast(tempBoard);
+        for (int i = 0; i < solutionDepth; i++) {
+            tempBoard = tempBoard.deepCopy();
+            tempBoard.moveTile(pathMoves[i]);
+            tempBoard.depth = i + 1;
+            tempBoard.calculateHeuristic(goalBoard, searchMode, heuristicMode, 0, true);
+            solutionPath.addLast(tempBoard);
+        }
+    }
+
+    private void buildSolutionPath(PuzzleBoard finalBoard) {
+        solutionPath.push(finalBoard);
+        if (finalBoard.parent != -1) {
+            boolean keepRunning = true;
+            PuzzleBoard tempBoard = closed.get(finalBoard.parent);
+            while (keepRunning) {
+                solutionPath.push(tempBoard);
+                if (tempBoard.parent == -1) {
+                    keepRunning = false;
+                } else {
+                    tempBoard = closed.get(tempBoard.parent);
+                }
+            }
+        }
+    }
+
+    void printProgress(String message) {
+        if (showProgress) {
+            System.out.println(message);
+        }
+    }
+}
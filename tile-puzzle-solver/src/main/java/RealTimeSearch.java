@@ -0,0 +1,259 @@
+/********************************************************************************
+//*******************************************************************************
+//Class:        RealTimeSearch
+//Description:  This is the real-time search mode of the tile puzzle solver
+//              (LRTA* with a bounded lookahead). It never plans the whole
+//              path. Each move looks a fixed number of moves ahead of the
+//              current board, commits the first move of the cheapest branch
+//              and hands it to a listener right away. So the work per move is
+//              bounded by the lookahead depth alone, however hard the
+//              instance is.
+//
+//              The lookahead is a depth-first minimin search: a branch is
+//              worth the lowest f = g + h on its frontier, with f carried
+//              down by pathmax and branches cut once they cannot beat the
+//              best frontier found (alpha pruning). After each lookahead the
+//              current board learns that value as its h. Learned values live
+//              in a hash table that outlasts the move and the trial, so a
+//              board the walk comes back to is scored higher each time and
+//              the walk cannot loop forever.
+//
+//              Learned values stay admissible, so further trials from the
+//              start walk shorter paths. Trials stop once a trial learns
+//              nothing, once a path as short as the start's learned value
+//              (a proven lower bound) is found, or at the trial limit. The
+//              reported bound is the best path length over that lower bound.
+**/
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+public class RealTimeSearch {
+
+    // <editor-fold defaultstate="collapsed" desc="Global Variables">
+    static final int DEFAULT_LOOKAHEAD = 8;//Moves looked ahead per committed move by default
+    static final int MAX_TRIAL_MOVES = 1000000;//Moves one trial may commit before it gives up
+    private static final int CLOCK_INTERVAL = 64;//Committed moves between deadline checks
+
+    private final PuzzleSolver solver;//The engine that receives the results
+    private final HashMap<PuzzleBoard, Integer> learned = new HashMap<>();//Learned h-values by board
+    private final long deadline;//System.nanoTime() to stop at (0=none)
+    private int[] bestMoves;//Moves of the shortest trial so far (null=none finished)
+    private boolean stopped;//Set at the deadline, the memory budget or the move limit
+    // </editor-fold>
+
+/*******************************************************************************
+//Interface:    MoveListener
+//Description:  Receives the moves of the real-time mode as they are
+//              committed, before the next lookahead starts.
+**/
+    interface MoveListener {
+
+        void moveCommitted(int trial, int moveNumber, int direction, PuzzleBoard board);
+    }
+
+/*******************************************************************************
+//Method:       RealTimeSearch
+//Description:  Sets up a real-time search for an engine's start state.
+//Parameters:   givenSolver     the engine holding the start and goal states
+//Returns:      Nothing
+//Calls:        Nothing
+//Globals:      solver
+//              deadline
+**/
+    RealTimeSearch(PuzzleSolver givenSolver) {
+        solver = givenSolver;
+        deadline = givenSolver.deadlineMillis > 0 ? System.nanoTime() + givenSolver.deadlineMillis * 1000000L : 0;
+    }
+
+/*******************************************************************************
+//Method:       search
+//Description:  Runs trials from the start state until the learned values
+//              settle or the trial limit is reached, then hands the shortest
+//              walk and its proven bound to the engine.
+//Parameters:   None
+//Returns:      Nothing
+//Calls:        runTrial
+//              estimate
+//              PuzzleSolver.buildSolutionPath
+//Globals:      bestMoves
+//              stopped
+**/
+    void search() {
+        PuzzleBoard startBoard = solver.gameBoard.deepCopy();
+        for (int trial = 1; trial <= solver.realTimeTrials && !stopped; trial++) {
+            boolean learnedSomething = runTrial(trial, startBoard.deepCopy());
+            if (bestMoves != null) {
+                solver.printProgress("Trial " + trial + ": shortest walk " + bestMoves.length + " moves; start learned h = "
+                        + estimate(startBoard));
+                if (!learnedSomething || bestMoves.length <= estimate(startBoard)) {
+                    break;
+                }
+            }
+        }
+        solver.peakOpenSize = learned.size();
+        if (bestMoves == null) {
+            if (solver.budgetExceeded) {
+                solver.printProgress("Stopped: the learned values went over the memory budget");
+            } else if (solver.deadlineReached) {
+                solver.printProgress("Stopped: the deadline passed before a trial reached the goal");
+            } else {
+                solver.printProgress("Stopped: a trial made " + MAX_TRIAL_MOVES + " moves without reaching the goal");
+            }
+            return;
+        }
+        //Learned values never overestimate, so the start's value bounds the optimal length from below
+        int lowerBound = Math.max(1, estimate(startBoard));
+        solver.suboptimalityBound = bestMoves.length == 0 ? 1.0 : (double) bestMoves.length / lowerBound;
+        solver.buildSolutionPath(bestMoves, bestMoves.length);
+    }
+
+/*******************************************************************************
+//Method:       runTrial
+//Description:  Walks from the start state to the goal, one lookahead per
+//              move, learning a value for each board it leaves and streaming
+//              each move to the listener.
+//Parameters:   trial       the trial number (from 1)
+//              board       the start state (moved along the walk)
+//Returns:      boolean     true=some board's learned value went up
+//Calls:        lookahead
+//              estimate
+//              learn
+//Globals:      bestMoves
+//              stopped
+**/
+    private boolean runTrial(int trial, PuzzleBoard board) {
+        int[] moves = new int[64];
+        int moveCount = 0;
+        int lastDirection = -1;
+        boolean learnedSomething = false;
+        while (!board.equals(solver.goalBoard)) {
+            if (moveCount == MAX_TRIAL_MOVES) {
+                stopped = true;
+                return learnedSomething;
+            }
+            if (deadline != 0 && moveCount % CLOCK_INTERVAL == 0 && System.nanoTime() >= deadline) {
+                solver.deadlineReached = true;
+                stopped = true;
+                return learnedSomething;
+            }
+            long moveStart = System.nanoTime();
+            int h = estimate(board);
+            int bestDirection = -1;
+            int bestValue = Integer.MAX_VALUE;
+            for (int directionToMove = 0; directionToMove < 4; directionToMove++) {
+                int nextState = solver.moveMachine.next(MovePruningMachine.START, directionToMove);
+                if (!board.moveTile(directionToMove)) {
+                    continue;
+                }
+                int value = lookahead(board, 1, h, nextState, bestValue);
+                board.moveTile(PuzzleSolver.oppositeDirection(directionToMove));
+                //On ties, step back only when nothing else is as good
+                if (bestDirection == -1 || value < bestValue || (value == bestValue
+                        && bestDirection == PuzzleSolver.oppositeDirection(lastDirection))) {
+                    bestValue = value;
+                    bestDirection = directionToMove;
+                }
+            }
+            if (bestValue > h && bestValue != Integer.MAX_VALUE) {
+                learnedSomething = true;
+                if (!learn(board, bestValue)) {
+                    stopped = true;
+                    return learnedSomething;
+                }
+            }
+            board.moveTile(bestDirection);
+            lastDirection = bestDirection;
+            if (moveCount == moves.length) {
+                moves = Arrays.copyOf(moves, moves.length * 2);
+            }
+            moves[moveCount++] = bestDirection;
+            solver.worstMoveNanos = Math.max(solver.worstMoveNanos, System.nanoTime() - moveStart);
+            if (solver.moveListener != null) {
+                solver.moveListener.moveCommitted(trial, moveCount, bestDirection, board);
+            }
+        }
+        if (bestMoves == null || moveCount < bestMoves.length) {
+            bestMoves = Arrays.copyOf(moves, moveCount);
+        }
+        return learnedSomething;
+    }
+
+/*******************************************************************************
+//Method:       lookahead
+//Description:  Searches a bounded tree below a board for the lowest f-value
+//              on its frontier. The board is moved in place and put back.
+//Parameters:   board           the board (already moved to this node)
+//              pathDepth       moves from the current board of the walk
+//              parentValue     the f-value of the node above (for pathmax)
+//              machineState    the move-pruning state after the path
+//              alpha           the best frontier value found so far
+//Returns:      int             the lowest frontier f-value below the board, or
+//                              a value over alpha if none matches it
+//Calls:        estimate
+//              lookahead
+//Globals:      None
+**/
+    private int lookahead(PuzzleBoard board, int pathDepth, int parentValue, int machineState, int alpha) {
+        solver.nodesExpanded++;
+        if (board.equals(solver.goalBoard)) {
+            return pathDepth;
+        }
+        int value = Math.max(parentValue, pathDepth + estimate(board));
+        //Cut only branches strictly worse than alpha, so tied values stay exact
+        if (value > alpha || pathDepth == solver.lookaheadDepth) {
+            return value;
+        }
+        int bestValue = Integer.MAX_VALUE;
+        for (int directionToMove = 0; directionToMove < 4; directionToMove++) {
+            int nextState = solver.moveMachine.next(machineState, directionToMove);
+            if (nextState == MovePruningMachine.PRUNED || !board.moveTile(directionToMove)) {
+                continue;
+            }
+            int result = lookahead(board, pathDepth + 1, value, nextState, Math.min(alpha, bestValue));
+            board.moveTile(PuzzleSolver.oppositeDirection(directionToMove));
+            bestValue = Math.min(bestValue, result);
+        }
+        return bestValue;
+    }
+
+/*******************************************************************************
+//Method:       estimate
+//Description:  Gives a board's learned value, or its heuristic if it has
+//              not learned one.
+//Parameters:   board       the board
+//Returns:      int         the estimate of its distance to the goal
+//Calls:        PuzzleBoard.calculateHeuristic
+//Globals:      learned
+**/
+    private int estimate(PuzzleBoard board) {
+        Integer value = learned.get(board);
+        if (value != null) {
+            return value;
+        }
+        board.calculateHeuristic(solver.goalBoard, solver.searchMode, solver.heuristicMode, 0, false);
+        return board.rawScore;
+    }
+
+/*******************************************************************************
+//Method:       learn
+//Description:  Stores a higher value for a board.
+//Parameters:   board       the board (copied if it is new to the table)
+//              value       its new value
+//Returns:      boolean     true=stored; false=the table is over the budget
+//Calls:        Nothing
+//Globals:      learned
+**/
+    private boolean learn(PuzzleBoard board, int value) {
+        if (learned.containsKey(board)) {
+            learned.put(board, value);
+            return true;
+        }
+        if (solver.nodeLimit > 0 && learned.size() >= solver.nodeLimit) {
+            solver.budgetExceeded = true;
+            return false;
+        }
+        learned.put(board.deepCopy(), value);
+        return true;
+    }
+}
@@ -0,0 +1,451 @@
+/********************************************************************************
+//*******************************************************************************
+//Class:        ReductionSearch
+//Description:  This is the hierarchical reduction mode of the tile puzzle
+//              solver, for boards too large to search. It solves the top row
+//              and the left column of the unsolved square, locks them, and
+//              repeats on the (n-1)x(n-1) square left over until a 3x3
+//              remains. The 3x3 is finished optimally from the 8-puzzle
+//              distance table. Solutions are not optimal, but they come in
+//              milliseconds even on 10x10 boards.
+//
+//              Tiles are placed with macro-operators: the blank walks (by
+//              breadth-first search over the free cells) to the cell ahead of
+//              the tile, then swaps with it, until the tile sits on its
+//              goal. The last two tiles of a row or column cannot be placed
+//              one at a time, so the second one is parked on the first goal
+//              cell and the first one just inside it, and two blank moves
+//              rotate both home. If a macro gets stuck (a tile trapped in the
+//              corner), the tiles being placed are moved by an exact
+//              breadth-first search over the positions of the blank and those
+//              tiles.
+//
+//              The reported bound is the solution length over the Manhattan
+//              distance of the start, which no solution can beat.
+**/
+
+import java.util.Arrays;
+
+public class ReductionSearch {
+
+    // <editor-fold defaultstate="collapsed" desc="Global Variables">
+    private static final int UP = 0;//Blank moves, as in PuzzleBoard.moveTile
+    private static final int RIGHT = 1;
+    private static final int DOWN = 2;
+    private static final int LEFT = 3;
+
+    private final PuzzleSolver solver;//The engine that receives the results
+    private final int side;//Side length of the board
+    private final int cellCount;//Cells on the board
+    private final boolean[] locked;//Cells whose tiles are placed (or held still)
+    private final int[] cellQueue;//Scratch queue for the cell searches
+    private final int[] cameFrom;//Scratch parent cells for the cell searches
+    private PuzzleBoard board;//The board being solved, moved along the way
+    private int[] moves = new int[256];//Moves made so far
+    private int moveCount;//Number of moves made so far
+    // </editor-fold>
+
+/*******************************************************************************
+//Method:       ReductionSearch
+//Description:  Sets up a reduction solve for an engine's start state.
+//Parameters:   givenSolver     the engine holding the start and goal states
+//Returns:      Nothing
+//Calls:        Nothing
+//Globals:      solver
+//              side
+//              cellCount
+//              locked
+//              cellQueue
+//              cameFrom
+**/
+    ReductionSearch(PuzzleSolver givenSolver) {
+        solver = givenSolver;
+        side = givenSolver.gameBoard.sideLength;
+        cellCount = side * side;
+        locked = new boolean[cellCount];
+        cellQueue = new int[cellCount];
+        cameFrom = new int[cellCount];
+    }
+
+/*******************************************************************************
+//Method:       search
+//Description:  Peels off rows and columns down to a 3x3, finishes it from the
+//              distance table and hands the moves to the engine.
+//Parameters:   None
+//Returns:      Nothing
+//Calls:        placeLine
+//              finishWithTable
+//              placeExactly
+//              PuzzleSolver.buildSolutionPath
+//Globals:      board
+//              moves
+//              moveCount
+**/
+    void search() {
+        board = solver.gameBoard.deepCopy();
+        int top = 0;
+        while (side - top > EightPuzzleTable.SIDE) {
+            placeLine(top, true);
+            placeLine(top, false);
+            top++;
+        }
+        if (side - top == EightPuzzleTable.SIDE) {
+            finishWithTable(top);
+        } else {
+            //Only a 2x2 board gets here; placing two tiles and the blank fixes the third
+            placeExactly(new int[]{1, 2}, new int[]{0, 1}, cellCount - 1);
+        }
+        if (!board.equals(solver.goalBoard)) {
+            solver.printProgress("No solution: the start state cannot reach the goal state");
+            return;
+        }
+        //No solution is shorter than the Manhattan distance of the start
+        int lowerBound = Math.max(1, solver.gameBoard.manhattanDistance);
+        solver.suboptimalityBound = moveCount == 0 ? 1.0 : (double) moveCount / lowerBound;
+        solver.buildSolutionPath(Arrays.copyOf(moves, moveCount), moveCount);
+    }
+
+/*******************************************************************************
+//Method:       placeLine
+//Description:  Places the top row or the left column of the unsolved square
+//              and locks it. All but the last two tiles go straight home; the
+//              last two are rotated in as a pair.
+//Parameters:   top         the first unsolved row and column
+//              isRow       true=the row; false=the column (below the row)
+//Returns:      Nothing
+//Calls:        placeTile
+//              placePair
+//Globals:      side
+**/
+    private void placeLine(int top, boolean isRow) {
+        for (int i = isRow ? top : top + 1; i < side - 2; i++) {
+            placeTile(isRow ? top * side + i : i * side + top);
+        }
+        if (isRow) {
+            placePair(top * side + side - 2, top * side + side - 1, LEFT, DOWN);
+        } else {
+            placePair((side - 2) * side + top, (side - 1) * side + top, UP, RIGHT);
+        }
+    }
+
+/*******************************************************************************
+//Method:       placeTile
+//Description:  Moves the tile that belongs in a cell there and locks it.
+//Parameters:   target      the cell
+//Returns:      Nothing
+//Calls:        moveTileTo
+//              placeExactly
+//Globals:      locked
+**/
+    private void placeTile(int target) {
+        int tile = target + 1;
+        if (!moveTileTo(tile, target)) {
+            placeExactly(new int[]{tile}, new int[]{target}, -1);
+        }
+        locked[target] = true;
+    }
+
+/*******************************************************************************
+//Method:       placePair
+//Description:  Places the last two tiles of a row or column and locks them.
+//              The second tile is parked on the first cell and the first tile
+//              one step inward from it. The blank then comes round to the
+//              second cell and moves toward the first cell and inward, which
+//              slides both tiles home.
+//Parameters:   first           the next-to-last cell of the line
+//              second          the last cell of the line (a board edge)
+//              towardFirst     the blank move from the second cell to the first
+//              inward          the blank move from the first cell into the
+//                              unsolved region
+//Returns:      Nothing
+//Calls:        cellOf
+//              moveTileTo
+//              moveBlankTo
+//              neighborCell
+//              applyMove
+//              placeExactly
+//Globals:      locked
+**/
+    private void placePair(int first, int second, int towardFirst, int inward) {
+        int firstTile = first + 1;
+        int secondTile = second + 1;
+        if (cellOf(firstTile) != first || cellOf(secondTile) != second) {
+            int staging = neighborCell(first, inward);
+            boolean placed = moveTileTo(secondTile, first);
+            if (placed) {
+                locked[first] = true;
+                //A first tile in the corner is trapped behind the parked one
+                placed = cellOf(firstTile) != second && moveTileTo(firstTile, staging);
+                if (placed) {
+                    locked[staging] = true;
+                    placed = moveBlankTo(second);
+                    locked[staging] = false;
+                }
+                locked[first] = false;
+            }
+            if (placed) {
+                applyMove(towardFirst);
+                applyMove(inward);
+            } else {
+                placeExactly(new int[]{firstTile, secondTile}, new int[]{first, second}, -1);
+            }
+        }
+        locked[first] = true;
+        locked[second] = true;
+    }
+
+/*******************************************************************************
+//Method:       moveTileTo
+//Description:  Walks a tile to a cell along a shortest path over the free
+//              cells, bringing the blank round in front of it for each step.
+//Parameters:   tile        the tile
+//              target      the cell
+//Returns:      boolean     true=the tile is there; false=the blank could not
+//                          get in front of it
+//Calls:        cellOf
+//              findPath
+//              moveBlankTo
+//              applyMove
+//Globals:      locked
+**/
+    private boolean moveTileTo(int tile, int target) {
+        int tileCell = cellOf(tile);
+        while (tileCell != target) {
+            int[] tilePath = findPath(tileCell, target);
+            if (tilePath == null) {
+                return false;
+            }
+            int nextCell = tilePath[1];
+            //Hold the tile still while the blank goes round it
+            locked[tileCell] = true;
+            boolean reached = moveBlankTo(nextCell);
+            locked[tileCell] = false;
+            if (!reached) {
+                return false;
+            }
+            applyMove(directionBetween(nextCell, tileCell));
+            tileCell = nextCell;
+        }
+        return true;
+    }
+
+/*******************************************************************************
+//Method:       moveBlankTo
+//Description:  Walks the blank to a cell along a shortest path over the free
+//              cells.
+//Parameters:   target      the cell
+//Returns:      boolean     true=the blank is there; false=no free path
+//Calls:        findPath
+//              applyMove
+//Globals:      board
+**/
+    private boolean moveBlankTo(int target) {
+        int[] blankPath = findPath(board.blankIndex, target);
+        if (blankPath == null) {
+            return false;
+        }
+        for (int i = 1; i < blankPath.length; i++) {
+            applyMove(directionBetween(blankPath[i - 1], blankPath[i]));
+        }
+        return true;
+    }
+
+/*******************************************************************************
+//Method:       findPath
+//Description:  Finds a shortest path between two cells that avoids locked
+//              cells (a breadth-first search over the cells).
+//Parameters:   from        the first cell (may be locked)
+//              to          the last cell
+//Returns:      int[]       the cells of the path, from first, or null if none
+//Calls:        neighborCell
+//Globals:      locked
+//              cellQueue
+//              cameFrom
+**/
+    private int[] findPath(int from, int to) {
+        Arrays.fill(cameFrom, -1);
+        cameFrom[from] = from;
+        int head = 0;
+        int tail = 0;
+        cellQueue[tail++] = from;
+        while (head < tail && cameFrom[to] < 0) {
+            int cell = cellQueue[head++];
+            solver.nodesExpanded++;
+            for (int direction = 0; direction < 4; direction++) {
+                int next = neighborCell(cell, direction);
+                if (next >= 0 && !locked[next] && cameFrom[next] < 0) {
+                    cameFrom[next] = cell;
+                    cellQueue[tail++] = next;
+                }
+            }
+        }
+        if (cameFrom[to] < 0) {
+            return null;
+        }
+        int length = 1;
+        for (int cell = to; cell != from; cell = cameFrom[cell]) {
+            length++;
+        }
+        int[] path = new int[length];
+        for (int cell = to, i = length - 1; i >= 0; cell = cameFrom[cell], i--) {
+            path[i] = cell;
+        }
+        return path;
+    }
+
+/*******************************************************************************
+//Method:       placeExactly
+//Description:  Moves one or two tiles to their cells (and optionally the
+//              blank to its cell) by a breadth-first search over where the
+//              blank and those tiles are. The other free tiles may end up
+//              anywhere. A state is (blank * cells + first) * cells + second.
+//Parameters:   tiles           the tiles (one or two)
+//              targets         their cells
+//              blankTarget     the blank's cell (-1=anywhere)
+//Returns:      Nothing
+//Calls:        cellOf
+//              neighborCell
+//              applyMove
+//Globals:      locked
+//              cellCount
+**/
+    private void placeExactly(int[] tiles, int[] targets, int blankTarget) {
+        int firstCell = cellOf(tiles[0]);
+        int secondCell = tiles.length > 1 ? cellOf(tiles[1]) : 0;
+        int secondTarget = tiles.length > 1 ? targets[1] : 0;
+        int stateCount = cellCount * cellCount * cellCount;
+        int[] parent = new int[stateCount];
+        byte[] moveInto = new byte[stateCount];
+        Arrays.fill(parent, -1);
+        int[] queue = new int[stateCount];
+        int start = (board.blankIndex * cellCount + firstCell) * cellCount + secondCell;
+        parent[start] = start;
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = start;
+        int goal = -1;
+        while (head < tail) {
+            int state = queue[head++];
+            solver.nodesExpanded++;
+            int blank = state / (cellCount * cellCount);
+            int first = state / cellCount % cellCount;
+            int second = state % cellCount;
+            if (first == targets[0] && second == secondTarget && (blankTarget < 0 || blank == blankTarget)) {
+                goal = state;
+                break;
+            }
+            for (int direction = 0; direction < 4; direction++) {
+                int next = neighborCell(blank, direction);
+                if (next < 0 || locked[next]) {
+                    continue;
+                }
+                //The tile the blank moves onto takes the blank's old cell
+                int nextFirst = next == first ? blank : first;
+                int nextSecond = tiles.length > 1 && next == second ? blank : second;
+                int nextState = (next * cellCount + nextFirst) * cellCount + nextSecond;
+                if (parent[nextState] < 0) {
+                    parent[nextState] = state;
+                    moveInto[nextState] = (byte) direction;
+                    queue[tail++] = nextState;
+                }
+            }
+        }
+        if (goal < 0) {
+            return;
+        }
+        int pathLength = 0;
+        for (int state = goal; state != start; state = parent[state]) {
+            queue[pathLength++] = moveInto[state];
+        }
+        for (int i = pathLength - 1; i >= 0; i--) {
+            applyMove(queue[i]);
+        }
+    }
+
+/*******************************************************************************
+//Method:       finishWithTable
+//Description:  Solves the last 3x3 optimally. Its tiles are renumbered to an
+//              8-puzzle board and walked down the distance table; a move of
+//              the small board is the same move on the large one.
+//Parameters:   top         the first row and column of the 3x3
+//Returns:      Nothing
+//Calls:        EightPuzzleTable.load
+//              EightPuzzleTable.distance
+//              applyMove
+//Globals:      board
+//              side
+**/
+    private void finishWithTable(int top) {
+        int small = EightPuzzleTable.SIDE;
+        EightPuzzleTable table = EightPuzzleTable.load();
+        PuzzleBoard smallBoard = new PuzzleBoard(small);
+        for (int row = 0; row < small; row++) {
+            for (int col = 0; col < small; col++) {
+                int tile = board.getTile(top + row, top + col);
+                int goalRow = (tile - 1) / side - top;
+                int goalCol = (tile - 1) % side - top;
+                smallBoard.setTile(row, col, tile == 0 ? 0 : goalRow * small + goalCol + 1);
+            }
+        }
+        int distance = table.distance(smallBoard);
+        if (distance == EightPuzzleTable.UNREACHABLE) {
+            return;
+        }
+        //Every board on a shortest path has a neighbor one move closer
+        while (distance > 0) {
+            for (int direction = 0; direction < 4; direction++) {
+                PuzzleBoard tempBoard = smallBoard.deepCopy();
+                solver.nodesExpanded++;
+                if (tempBoard.moveTile(direction) && table.distance(tempBoard) == distance - 1) {
+                    smallBoard = tempBoard;
+                    applyMove(direction);
+                    break;
+                }
+            }
+            distance--;
+        }
+    }
+
+    private void applyMove(int direction) {
+        board.moveTile(direction);
+        if (moveCount == moves.length) {
+            moves = Arrays.copyOf(moves, moves.length * 2);
+        }
+        moves[moveCount++] = direction;
+    }
+
+    private int cellOf(int tile) {
+        for (int cell = 0; cell < cellCount; cell++) {
+            if (board.getTile(cell) == tile) {
+                return cell;
+            }
+        }
+        return -1;
+    }
+
+/*******************************************************************************
+//Method:       neighborCell
+//Description:  Gets the cell next to a cell in a direction.
+//Parameters:   cell        the cell
+//              direction   0=up; 1=right; 2=down; 3=left
+//Returns:      int         the neighbor, or -1 past the edge
+//Calls:        Nothing
+//Globals:      side
+**/
+    private int neighborCell(int cell, int direction) {
+        switch (direction) {
+            case UP:
+                return cell >= side ? cell - side : -1;
+            case RIGHT:
+                return cell % side < side - 1 ? cell + 1 : -1;
+            case DOWN:
+                return cell < cellCount - side ? cell + side : -1;
+            default:
+                return cell % side > 0 ? cell - 1 : -1;
+        }
+    }
+
+    private int directionBetween(int from, int to) {
+        return to == from - side ? UP : to == from + 1 ? RIGHT : to == from + side ? DOWN : LEFT;
+    }
+}
@@ -0,0 +1,297 @@
+/********************************************************************************
+//*******************************************************************************
+//Class:        SolutionCache
+//Description:  This is the solved-instance cache of the tile puzzle solver. It
+//              maps start states to optimal move sequences, so a board solved
+//              before is answered by a lookup instead of a search.
+//
+//              Keys are canonical. Mirroring a board across its main diagonal
+//              (and renumbering the tiles to match) leaves the goal in place
+//              and swaps up with left and right with down. So a board and its
+//              mirror image have the same solution up to those swaps. The
+//              cache keys each board by whichever of the two packs lower.
+//
+//              The most recently used entries are held in memory, up to a
+//              capacity. Every new entry is also appended to a log file, which
+//              is read back on the next start so the cache survives restarts.
+//              A record cut off by a crash is dropped from the end of the log.
+//              Only solutions proven optimal are stored.
+//
+//              File layout (big-endian): int magic, then per entry a byte
+//              side length, one byte per cell (its tile), a short move count
+//              and one byte per move.
+**/
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class SolutionCache {
+
+    // <editor-fold defaultstate="collapsed" desc="Global Variables">
+    static final int DEFAULT_CAPACITY = 100000;//Entries held in memory by default
+    private static final int MAGIC = 0x53434831;//"SCH1"
+    private static final int[] MIRRORED_DIRECTIONS = {3, 2, 1, 0};//Direction after mirroring, by direction
+
+    private final File logFile;//The append-only log
+    private final LinkedHashMap<PuzzleBoard, byte[]> entries;//Canonical board to its moves, least recently used first
+    private DataOutputStream log;//Appends new entries to the log
+    private long hits;//Lookups answered from the cache
+    private long misses;//Lookups that had to search
+    // </editor-fold>
+
+/*******************************************************************************
+//Method:       SolutionCache
+//Description:  Sets up an empty cache that drops its least recently used entry
+//              when it grows over its capacity.
+//Parameters:   givenLogFile    the log file
+//              capacity        the most entries held in memory
+//Returns:      Nothing
+//Calls:        Nothing
+//Globals:      logFile
+//              entries
+**/
+    private SolutionCache(File givenLogFile, final int capacity) {
+        logFile = givenLogFile;
+        entries = new LinkedHashMap<PuzzleBoard, byte[]>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<PuzzleBoard, byte[]> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+/*******************************************************************************
+//Method:       open
+//Description:  Opens a cache, reading the entries already in its log (the
+//              newest ones win when they do not all fit) and readying the log
+//              for appends.
+//Parameters:   file        the log file (created if missing)
+//              capacity    the most entries held in memory
+//Returns:      SolutionCache   the cache
+//Calls:        readLog
+//Globals:      None
+**/
+    static SolutionCache open(File file, int capacity) throws IOException {
+        SolutionCache cache = new SolutionCache(file, capacity);
+        File directory = file.getAbsoluteFile().getParentFile();
+        if (directory != null && !directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("could not create " + directory);
+        }
+        boolean isNew = !file.isFile() || file.length() == 0;
+        if (!isNew) {
+            cache.readLog();
+        }
+        cache.log = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true)));
+        if (isNew) {
+            cache.log.writeInt(MAGIC);
+            cache.log.flush();
+        }
+        return cache;
+    }
+
+/*******************************************************************************
+//Method:       get
+//Description:  Looks up the optimal moves for a start state.
+//Parameters:   board       the start state
+//Returns:      int[]       the moves, or null on a miss
+//Calls:        canonicalBoard
+//Globals:      entries
+//              hits
+//              misses
+**/
+    synchronized int[] get(PuzzleBoard board) {
+        boolean[] mirrored = new boolean[1];
+        byte[] stored = entries.get(canonicalBoard(board, mirrored));
+        if (stored == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        int[] moves = new int[stored.length];
+        for (int i = 0; i < moves.length; i++) {
+            moves[i] = mirrored[0] ? MIRRORED_DIRECTIONS[stored[i]] : stored[i];
+        }
+        return moves;
+    }
+
+/*******************************************************************************
+//Method:       put
+//Description:  Stores the optimal moves for a start state and appends them to
+//              the log. A board already cached is left alone.
+//Parameters:   board       the start state
+//              moves       its optimal moves
+//Returns:      Nothing
+//Calls:        canonicalBoard
+//              writeEntry
+//Globals:      entries
+**/
+    synchronized void put(PuzzleBoard board, int[] moves) {
+        boolean[] mirrored = new boolean[1];
+        PuzzleBoard key = canonicalBoard(board, mirrored);
+        if (entries.containsKey(key)) {
+            return;
+        }
+        byte[] stored = new byte[moves.length];
+        for (int i = 0; i < moves.length; i++) {
+            stored[i] = (byte) (mirrored[0] ? MIRRORED_DIRECTIONS[moves[i]] : moves[i]);
+        }
+        entries.put(key, stored);
+        try {
+            writeEntry(key, stored);
+        } catch (IOException e) {
+            System.out.println("Could not add to " + logFile + ": " + e.getMessage());
+        }
+    }
+
+    synchronized long getHits() {
+        return hits;
+    }
+
+    synchronized long getMisses() {
+        return misses;
+    }
+
+/*******************************************************************************
+//Method:       describeStats
+//Description:  Describes the hits and misses so far.
+//Parameters:   None
+//Returns:      String      the hit and miss counts and the hit rate
+//Calls:        Nothing
+//Globals:      hits
+//              misses
+//              entries
+**/
+    synchronized String describeStats() {
+        long lookups = hits + misses;
+        return String.format("Solution cache: %d hits, %d misses (%.1f%% hit rate), %d entries",
+                hits, misses, lookups == 0 ? 0.0 : 100.0 * hits / lookups, entries.size());
+    }
+
+    synchronized void close() throws IOException {
+        log.close();
+    }
+
+/*******************************************************************************
+//Method:       canonicalBoard
+//Description:  Picks the key of a board: the board itself or its mirror
+//              image, whichever has the lower packed words.
+//Parameters:   board       the board
+//              mirrored    set to whether the mirror image was picked
+//Returns:      PuzzleBoard the key (a new board)
+//Calls:        mirrorBoard
+//Globals:      None
+**/
+    static PuzzleBoard canonicalBoard(PuzzleBoard board, boolean[] mirrored) {
+        PuzzleBoard mirror = mirrorBoard(board);
+        long[] boardWords = new long[board.packedWordCount()];
+        long[] mirrorWords = new long[boardWords.length];
+        board.writePacked(boardWords, 0);
+        mirror.writePacked(mirrorWords, 0);
+        int order = 0;
+        for (int i = 0; i < boardWords.length && order == 0; i++) {
+            order = Long.compare(mirrorWords[i], boardWords[i]);
+        }
+        mirrored[0] = order < 0;
+        return mirrored[0] ? mirror : board.deepCopy();
+    }
+
+/*******************************************************************************
+//Method:       mirrorBoard
+//Description:  Mirrors a board across its main diagonal. The tile in cell
+//              (row, col) moves to (col, row) and is renumbered to the tile
+//              whose goal cell is the mirror of its own, so the goal mirrors
+//              to itself.
+//Parameters:   board       the board
+//Returns:      PuzzleBoard the mirror image
+//Calls:        PuzzleBoard.setTile
+//Globals:      None
+**/
+    static PuzzleBoard mirrorBoard(PuzzleBoard board) {
+        int side = board.sideLength;
+        PuzzleBoard mirror = new PuzzleBoard(side);
+        for (int row = 0; row < side; row++) {
+            for (int col = 0; col < side; col++) {
+                int tile = board.getTile(row, col);
+                int mirroredTile = tile == 0 ? 0 : ((tile - 1) % side) * side + (tile - 1) / side + 1;
+                mirror.setTile(col, row, mirroredTile);
+            }
+        }
+        return mirror;
+    }
+
+/*******************************************************************************
+//Method:       readLog
+//Description:  Reads the entries of the log into memory. A record cut off at
+//              the end is dropped by truncating the log after the last whole
+//              one.
+//Parameters:   None
+//Returns:      Nothing
+//Calls:        Nothing
+//Globals:      logFile
+//              entries
+**/
+    private void readLog() throws IOException {
+        long goodLength = 4;
+        if (logFile.length() < goodLength) {
+            throw new IOException("not a solution cache file");
+        }
+        try (DataInputStream input = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(logFile), 1 << 16))) {
+            if (input.readInt() != MAGIC) {
+                throw new IOException("not a solution cache file");
+            }
+            while (true) {
+                int side = input.read();
+                if (side < 0) {
+                    break;
+                }
+                if (side < 2 || side > PuzzleBoard.MAX_SIDE) {
+                    throw new IOException("bad entry at byte " + goodLength);
+                }
+                PuzzleBoard board = new PuzzleBoard(side);
+                for (int cell = 0; cell < side * side; cell++) {
+                    board.setTile(cell / side, cell % side, input.readUnsignedByte());
+                }
+                byte[] moves = new byte[input.readUnsignedShort()];
+                input.readFully(moves);
+                entries.put(board, moves);
+                goodLength += 1 + side * side + 2 + moves.length;
+            }
+        } catch (EOFException e) {
+            System.out.println("Dropping a cut-off entry at the end of " + logFile);
+            try (RandomAccessFile file = new RandomAccessFile(logFile, "rw")) {
+                file.setLength(goodLength);
+            }
+        }
+    }
+
+/*******************************************************************************
+//Method:       writeEntry
+//Description:  Appends one entry to the log and flushes it.
+//Parameters:   key         the canonical board
+//              moves       its moves
+//Returns:      Nothing
+//Calls:        Nothing
+//Globals:      log
+**/
+    private void writeEntry(PuzzleBoard key, byte[] moves) throws IOException {
+        int side = key.sideLength;
+        log.writeByte(side);
+        for (int cell = 0; cell < side * side; cell++) {
+            log.writeByte(key.getTile(cell));
+        }
+        log.writeShort(moves.length);
+        log.write(moves);
+        log.flush();
+    }
+}
@@ -13,6 +13,8 @@
 //*******************************************************************************
 //******************************************************************************/
 
+import java.io.File;
+import java.io.IOException;
 import java.util.*;
 
 
@@ -20,28 +22,22 @@ public class TilePuzzleSolver {
 
     // <editor-fold defaultstate="collapsed" desc="Global Variables">
     //Basic puzzle values
-    static boolean useDepthPenalty = true;//States whether to use the depth penalty
-    static int totalBoardsCreated;//Tracks total number of boards built
     static int sideLength;//The side length of the puzzle chosen
-    static int searchMode;//1=breadth-first; 2=best-first
 
     //Special objects
-    static PuzzleBoard goalBoard;//Goal state
-    static PuzzleBoard gameBoard;//Generic start/current state
-
-    //List objects
-    static PriorityQueue<PuzzleBoard> open = new PriorityQueue<>();//Nodes yet to be evaluated
-    static ArrayList<PuzzleBoard> closed = new ArrayList<>();//Nodes already evaluated
-    static Deque<PuzzleBoard> solutionPath = new LinkedList<>();//Nodes in solution
+    static PuzzleSolver solver;//Search engine for the current puzzle
+    static Random random = createRandom();//Source of shuffles (seeded by -Dpuzzle.seed)
+    static SolutionCache solutionCache = openSolutionCache();//Solutions kept across runs (-Dsolution.cache=file; null=none)
+    static final String[] DIRECTION_NAMES = {"up", "right", "down", "left"};//Blank moves by direction
     // </editor-fold>
 
     public static void main(String[] args) {
-        System.out.println("Program to solve the 8, 15, 24, or 36 Puzzle: Jack Kawell\n");
+        System.out.println("Program to solve the 8, 15, 24, ... 99 Puzzle: Jack Kawell\n");
         boolean keepRunning = true;
         while (keepRunning) {
             getPuzzleAndValuesFromUser();
             PuzzleGameUserInput.pauseProgram();
-            beginSearch();
+            solver.runSearch();
             showSolution();
             PuzzleGameUserInput.pauseProgram();
             if (PuzzleGameUserInput.shouldRepeat()) {
@@ -59,40 +55,69 @@ public class TilePuzzleSolver {
         if (puzzleSize == 0) {
             endProgram();
         }
-        //Build the goal board
-        goalBoard = new PuzzleBoard(sideLength);
-        goalBoard.generateGoalState();
         //Shuffle board or get user defined board from user
+        PuzzleBoard gameBoard;
         int numberOfShuffleMoves = PuzzleGameUserInput.getNumberOfShuffleMoves();
         if (numberOfShuffleMoves == -1) {
             gameBoard = PuzzleGameUserInput.getUserDefinedBoard(puzzleSize, sideLength);
+        } else if (numberOfShuffleMoves == 0) {
+            gameBoard = PuzzleGenerator.randomSolvableBoard(sideLength, random);
         } else {
             gameBoard = new PuzzleBoard(sideLength);
             gameBoard.generateGoalState();
             shuffleBoard(gameBoard, numberOfShuffleMoves);
         }
+        solver = new PuzzleSolver(gameBoard);
+        solver.solutionCache = solutionCache;
         //Ask user which search mode to use
-        searchMode = PuzzleGameUserInput.getSearchMode();
-        if (searchMode == 2) {
-            useDepthPenalty = PuzzleGameUserInput.shouldUseDepthPenalty();
+        solver.searchMode = PuzzleGameUserInput.getSearchMode();
+        if (solver.searchMode == 2) {
+            solver.useDepthPenalty = PuzzleGameUserInput.shouldUseDepthPenalty();
+            solver.openListMode = PuzzleGameUserInput.getOpenListMode();
+        }
+        if (solver.searchMode == 8 || solver.searchMode == 9) {
+            solver.weight = PuzzleGameUserInput.getWeight();
+            solver.deadlineMillis = PuzzleGameUserInput.getDeadline();
+        }
+        if (solver.searchMode == 13) {
+            solver.lookaheadDepth = PuzzleGameUserInput.getLookaheadDepth();
+            solver.realTimeTrials = PuzzleGameUserInput.getTrials();
+            solver.moveListener = new RealTimeSearch.MoveListener() {
+                @Override
+                public void moveCommitted(int trial, int moveNumber, int direction, PuzzleBoard board) {
+                    System.out.println("Trial " + trial + ", move " + moveNumber + ": " + DIRECTION_NAMES[direction]);
+                }
+            };
+        }
+        if (solver.usesHeuristic()) {
+            solver.heuristicMode = PuzzleGameUserInput.getHeuristicMode();
+        }
+        solver.prepareSearch();
+        if (solver.usesHeuristic()) {
+            printHeuristicEstimates(gameBoard);
         }
-        //Calculate heuristics
-        goalBoard.calculateHeuristic(goalBoard, searchMode, 0, useDepthPenalty);
-        gameBoard.calculateHeuristic(goalBoard, searchMode, 0, useDepthPenalty);
         //Print out the goal and start states
         System.out.println("This is the goal state:");
-        printBoard(goalBoard);
+        printBoard(solver.goalBoard);
         System.out.println("This is the start state:");
         printBoard(gameBoard);
     }
 
+    private static void printHeuristicEstimates(PuzzleBoard boardToEstimate) {
+        System.out.println("Start state estimates:");
+        for (int mode = PuzzleHeuristics.MANHATTAN; mode <= PuzzleHeuristics.PATTERN_DATABASE; mode++) {
+            System.out.println("  " + PuzzleHeuristics.getName(mode) + " = "
+                    + PuzzleHeuristics.estimate(boardToEstimate, mode));
+        }
+        System.out.println("");
+    }
+
     private static void shuffleBoard(PuzzleBoard boardToShuffle, int maxShuffles) {
         int backtrackDirection = -1;
         int successfulShuffles = 0;
         while (successfulShuffles < maxShuffles) {
             //Generate a random direction
-            Random random = new Random();
-            int direction = random.nextInt(5);
+            int direction = random.nextInt(4);
             if (direction != backtrackDirection) {
                 boolean success = boardToShuffle.moveTile(direction);
                 //Assign the backtrack direction to keep from reshuffling
@@ -120,81 +145,29 @@ public class TilePuzzleSolver {
         }
     }
 
-    private static void beginSearch() {
-        //Tell the user that the search has starting
-        System.out.println("Working...");
-        //Add the first board to open
-        open.add(gameBoard);
-        //Loop to find solution
-        boolean foundSolution = false;
-        while (!foundSolution) {
-            //Pull in the board at the front of the queue
-            PuzzleBoard curBoard = open.poll();
-            //Check if the current board is the goal board
-            foundSolution = curBoard.equals(goalBoard);
-            //Add the current board to closed
-            closed.add(curBoard);
-            //If the solution is found, build the path... else, continue searching
-            if (foundSolution) {
-                buildSolutionPath(curBoard);
-            } else {
-                //Get the index (parent index) of the current board in closed
-                int curParentIndex = closed.indexOf(curBoard);
-                generateMoves(curBoard, curParentIndex);
-            }
-        }
+    private static Random createRandom() {
+        String seed = System.getProperty("puzzle.seed");
+        return seed == null ? new Random() : new Random(Long.parseLong(seed));
     }
 
-    private static void generateMoves(PuzzleBoard curBoard, int curParentIndex) {
-        for (int directionToMove = 0; directionToMove < 4; directionToMove++) {
-            //Copy the current board to a temp board
-            PuzzleBoard tempBoard = curBoard.deepCopy();
-            //Assign the parent index to the new board
-            tempBoard.parent = curParentIndex;
-            //Attempt to move the tile
-            boolean moveSucceeded = tempBoard.moveTile(directionToMove);
-            //If the move succeeded, check to see if unique and save if true
-            if (moveSucceeded) {
-                //Increment the depth
-                tempBoard.depth++;
-                //Check for uniqueness
-                boolean uniqueBoard = true;
-                for (int i = 0; i < closed.size(); i++) {
-                    if (tempBoard.equals(closed.get(i))) {
-                        uniqueBoard = false;
-                        break;
-                    }
-                }
-                //If unique, add the board to open (calculate the score first)
-                if (uniqueBoard) {
-                    totalBoardsCreated++;
-                    tempBoard.calculateHeuristic(goalBoard, searchMode, totalBoardsCreated, useDepthPenalty);
-                    open.add(tempBoard);
-                }
-            }
+    private static SolutionCache openSolutionCache() {
+        String path = System.getProperty("solution.cache");
+        if (path == null) {
+            return null;
         }
-    }
-
-    private static void buildSolutionPath(PuzzleBoard finalBoard) {
-        solutionPath.push(finalBoard);
-        if (finalBoard.parent != -1) {
-            boolean keepRunning = true;
-            PuzzleBoard tempBoard = closed.get(finalBoard.parent);
-            while (keepRunning) {
-                solutionPath.push(tempBoard);
-                if (tempBoard.parent == -1) {
-                    keepRunning = false;
-                } else {
-                    tempBoard = closed.get(tempBoard.parent);
-                }
-            }
+        File file = new File(path);
+        try {
+            return SolutionCache.open(file, SolutionCache.DEFAULT_CAPACITY);
+        } catch (IOException e) {
+            System.out.println("Could not open the solution cache " + file + ": " + e.getMessage());
+            return null;
         }
     }
 
     private static void printBoard(PuzzleBoard boardToPrint) {
         for (int i = 0; i < sideLength; i++) {
             for (int j = 0; j < sideLength; j++) {
-                printCharacter(boardToPrint.board[i][j]);
+                printCharacter(boardToPrint.getTile(i, j));
             }
             System.out.println("");
         }
@@ -223,6 +196,18 @@ public class TilePuzzleSolver {
     }
 
     private static void showSolution() {
+        Deque<PuzzleBoard> solutionPath = solver.solutionPath;
+        if (solutionPath.isEmpty()) {
+            if (solver.budgetExceeded) {
+                System.out.println("No solution found inside the memory budget");
+            } else if (solver.deadlineReached) {
+                System.out.println("No solution found before the deadline");
+            } else {
+                System.out.println("No solution: the start state cannot reach the goal state");
+            }
+            System.out.println("");
+            return;
+        }
         boolean stepThroughSolution = PuzzleGameUserInput.shouldStepThroughSolution();
         int solutionLength = solutionPath.size();
         while (!solutionPath.isEmpty()) {
@@ -231,24 +216,69 @@ public class TilePuzzleSolver {
                 PuzzleGameUserInput.pauseProgram();
             }
         }
-        System.out.println((solutionLength - 1) + " moves out of " + (closed.size() - 1)
-                + " moves considered (" + open.size() + " nodes left in OPEN)");
+        if (solver.usesHeuristic()) {
+            System.out.println("Heuristic: " + PuzzleHeuristics.getName(solver.heuristicMode));
+        }
+        if (solver.cacheHit) {
+            System.out.println((solutionLength - 1) + " moves read from the solution cache");
+            System.out.println(solutionCache.describeStats());
+        } else if (solver.searchMode == 3 || solver.searchMode == 4 || solver.searchMode == 16) {
+            System.out.println((solutionLength - 1) + " moves out of " + solver.nodesExpanded
+                    + " moves considered (" + solver.iterationsRun + " IDA* iterations)");
+        } else if (solver.searchMode == 5) {
+            System.out.println((solutionLength - 1) + " moves out of " + solver.nodesExpanded
+                    + " moves considered (" + solver.parallelism + " HDA* workers)");
+        } else if (solver.searchMode == 6) {
+            System.out.println((solutionLength - 1) + " moves out of " + solver.nodesExpanded
+                    + " moves considered (" + solver.totalBoardsCreated + " boards stored)");
+        } else if (solver.searchMode == 7) {
+            System.out.println((solutionLength - 1) + " moves read from the 8-puzzle distance table");
+        } else if (solver.searchMode == 10) {
+            System.out.println((solutionLength - 1) + " moves out of " + solver.nodesExpanded
+                    + " moves considered (memory-bounded)");
+        } else if (solver.searchMode == 11) {
+            System.out.println((solutionLength - 1) + " moves out of " + solver.nodesExpanded
+                    + " moves considered (" + solver.peakOpenSize + " boards in the largest layer on disk)");
+        } else if (solver.searchMode == 12) {
+            System.out.println((solutionLength - 1) + " moves out of " + solver.nodesExpanded
+                    + " moves considered (" + solver.peakOpenSize + " boards held at most, no closed list)");
+        } else if (solver.searchMode == 15) {
+            System.out.println((solutionLength - 1) + " moves out of " + solver.nodesExpanded
+                    + " moves considered (" + solver.totalBoardsCreated + " boards generated; at most "
+                    + solver.peakOpenSize + " nodes in OPEN)");
+        } else if (solver.searchMode == 14) {
+            System.out.println((solutionLength - 1) + " moves from the reduction solver (" + solver.nodesExpanded
+                    + " cells searched; " + String.format("at most %.3f", solver.suboptimalityBound)
+                    + " times optimal)");
+        } else if (solver.searchMode == 13) {
+            System.out.println((solutionLength - 1) + " moves out of " + solver.nodesExpanded
+                    + " moves considered (" + String.format("at most %.3f times optimal; slowest move %.2f ms",
+                    solver.suboptimalityBound, solver.worstMoveNanos / 1e6) + ")");
+        } else if (solver.searchMode == 8 || solver.searchMode == 9) {
+            System.out.println((solutionLength - 1) + " moves out of " + solver.nodesExpanded
+                    + " moves considered (" + String.format("at most %.3f", solver.suboptimalityBound)
+                    + " times optimal)");
+        } else {
+            System.out.println((solutionLength - 1) + " moves out of " + (solver.closed.size() - 1)
+                    + " moves considered (" + solver.open.size() + " nodes left in OPEN)");
+        }
         System.out.println("");
     }
 
     private static void resetProgram() {
-        goalBoard = null;
-        gameBoard = null;
         sideLength = 0;
-        searchMode = 0;
-        open = new PriorityQueue<>();
-        closed = new ArrayList<>();
-        solutionPath = new LinkedList<>();
-        useDepthPenalty = true;
-        totalBoardsCreated = 0;
+        solver = null;
     }
 
     private static void endProgram() {
+        if (solutionCache != null) {
+            System.out.println(solutionCache.describeStats());
+            try {
+                solutionCache.close();
+            } catch (IOException e) {
+                System.out.println("Could not close the solution cache: " + e.getMessage());
+            }
+        }
         System.out.println("\n\nExit...");
         System.exit(0);
     }
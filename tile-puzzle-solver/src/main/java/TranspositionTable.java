@@ -0,0 +1,254 @@
+/********************************************************************************
+//*******************************************************************************
+//Class:        TranspositionTable
+//Description:  This is the transposition table of the tile puzzle solver's
+//              IDA* with transpositions. It maps a board to the best lower
+//              bound known on its distance to the goal. Its buckets (a power
+//              of two) are kept in one array of longs. A solve owns its table
+//              while it runs.
+//
+//              Tables are pooled, so a batch of solves allocates its tables
+//              once. Each solve takes a table from the pool with a new
+//              generation number and puts it back when done. Entries of
+//              older generations read as misses, so the table never has to
+//              be cleared between solves. A solve uses only as many buckets
+//              as it has asked for so far, and the table is only reallocated
+//              when asked for more than it holds.
+//
+//              Each bucket holds two slots. The first keeps the entry with the
+//              deepest search behind it (depth-preferred); the second takes
+//              whatever the first turns away (always replaced). A slot is two
+//              words, the key and the data.
+//
+//              Boards up to 4x4 pack into one word, which is the key itself,
+//              so matches are exact. Larger boards are keyed by a 64-bit hash
+//              of their words plus 32 check bits in the data.
+//
+//              Data layout: bits 0-11 bound, 12-23 search depth, 24-31
+//              generation, 32-63 check bits.
+**/
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+public class TranspositionTable {
+
+    // <editor-fold defaultstate="collapsed" desc="Global Variables">
+    static final int MISS = -1;//Bound reported for boards not in the table
+    static final int BYTES_PER_BUCKET = 32;//Two slots of two longs
+    static final int MIN_BUCKETS = 1 << 10;//Fewest buckets a solve uses
+    static final int MAX_BUCKETS = 1 << 23;//Most buckets, whatever the budget (256 MB)
+    private static final long VALUE_MASK = 0xFFFL;//Mask for the 12-bit bound and depth
+    private static final int MAX_GENERATION = 0xFF;//Generations before the table is cleared
+    private static final ArrayList<TranspositionTable> pool = new ArrayList<>();//Tables no solve is using
+
+    private long[] slots;//Four longs per bucket: key, data, twice
+    private int bucketMask;//Buckets in use by the current solve - 1
+    private long generation;//Generation of the current solve's entries (from 1)
+    // </editor-fold>
+
+/*******************************************************************************
+//Method:       TranspositionTable
+//Description:  Builds an empty table with the fewest buckets.
+//Parameters:   None
+//Returns:      Nothing
+//Calls:        Nothing
+//Globals:      slots
+**/
+    private TranspositionTable() {
+        slots = new long[MIN_BUCKETS * 4];
+    }
+
+/*******************************************************************************
+//Method:       acquire
+//Description:  Takes a table from the pool, or builds one if the pool is
+//              empty, and starts a new generation in it. The solve uses its
+//              fewest buckets until it asks for more.
+//Parameters:   None
+//Returns:      TranspositionTable      the table, with no entries of its own
+//Calls:        TranspositionTable
+//Globals:      pool
+//              slots
+//              bucketMask
+//              generation
+**/
+    static synchronized TranspositionTable acquire() {
+        TranspositionTable table = pool.isEmpty() ? new TranspositionTable() : pool.remove(pool.size() - 1);
+        //Clear the table once the generation number would wrap, so no old entry can pass as new
+        if (++table.generation > MAX_GENERATION) {
+            table.slots = new long[table.slots.length];
+            table.generation = 1;
+        }
+        table.bucketMask = MIN_BUCKETS - 1;
+        return table;
+    }
+
+    static synchronized void release(TranspositionTable table) {
+        pool.add(table);
+    }
+
+/*******************************************************************************
+//Method:       ensureBuckets
+//Description:  Lets the current solve use at least a number of buckets,
+//              reallocating only when the table holds fewer, and stores the
+//              solve's entries again in their new buckets.
+//Parameters:   buckets     the bucket count wanted (a power of two)
+//Returns:      Nothing
+//Calls:        store
+//Globals:      slots
+//              bucketMask
+//              generation
+**/
+    void ensureBuckets(int buckets) {
+        int usedSlots = (bucketMask + 1) * 4;
+        if (buckets * 4 <= usedSlots) {
+            return;
+        }
+        long[] entries = new long[usedSlots];
+        int count = 0;
+        for (int slot = 0; slot < usedSlots; slot += 2) {
+            long data = slots[slot + 1];
+            if (((data >>> 24) & MAX_GENERATION) == generation) {
+                entries[count++] = slots[slot];
+                entries[count++] = data;
+            }
+        }
+        if (buckets * 4 > slots.length) {
+            slots = new long[buckets * 4];
+        } else {
+            Arrays.fill(slots, 0, usedSlots, 0);
+        }
+        bucketMask = buckets - 1;
+        for (int i = 0; i < count; i += 2) {
+            long data = entries[i + 1];
+            store(entries[i], (int) (data >>> 32), (int) (data & VALUE_MASK), (int) ((data >>> 12) & VALUE_MASK));
+        }
+    }
+
+    long sizeInBytes() {
+        return (long) (bucketMask + 1) * BYTES_PER_BUCKET;
+    }
+
+/*******************************************************************************
+//Method:       probe
+//Description:  Looks up the bound stored for a board.
+//Parameters:   key             the board's key (from keyOf)
+//              check           the board's check bits (from checkOf)
+//Returns:      int             the bound, or MISS
+//Calls:        bucketOf
+//              matches
+//Globals:      slots
+**/
+    int probe(long key, int check) {
+        int base = bucketOf(key) * 4;
+        for (int slot = base; slot < base + 4; slot += 2) {
+            long data = slots[slot + 1];
+            if (matches(slots[slot], data, key, check)) {
+                return (int) (data & VALUE_MASK);
+            }
+        }
+        return MISS;
+    }
+
+/*******************************************************************************
+//Method:       store
+//Description:  Records a bound for a board. An entry already there keeps the
+//              larger bound and depth. Otherwise the depth-preferred slot
+//              takes it if it is at least as deep as what that slot holds (or
+//              that holds an older generation), and the other slot takes it
+//              if not.
+//Parameters:   key             the board's key (from keyOf)
+//              check           the board's check bits (from checkOf)
+//              bound           the lower bound on the distance to the goal
+//              depth           the search depth it was found with
+//Returns:      Nothing
+//Calls:        bucketOf
+//              matches
+//              write
+//Globals:      slots
+//              generation
+**/
+    void store(long key, int check, int bound, int depth) {
+        int base = bucketOf(key) * 4;
+        for (int slot = base; slot < base + 4; slot += 2) {
+            long data = slots[slot + 1];
+            if (matches(slots[slot], data, key, check)) {
+                bound = Math.max(bound, (int) (data & VALUE_MASK));
+                depth = Math.max(depth, (int) ((data >>> 12) & VALUE_MASK));
+                write(slot, key, check, bound, depth);
+                return;
+            }
+        }
+        long preferred = slots[base + 1];
+        int preferredDepth = ((preferred >>> 24) & MAX_GENERATION) == generation
+                ? (int) ((preferred >>> 12) & VALUE_MASK) : -1;
+        write(depth >= preferredDepth ? base : base + 2, key, check, bound, depth);
+    }
+
+    //A bound cut down to 12 bits is still a lower bound
+    private void write(int slot, long key, int check, int bound, int depth) {
+        slots[slot] = key;
+        slots[slot + 1] = Math.min(bound, VALUE_MASK) | Math.min(depth, VALUE_MASK) << 12 | generation << 24
+                | ((long) check) << 32;
+    }
+
+    private boolean matches(long slotKey, long data, long key, int check) {
+        return slotKey == key && ((data >>> 24) & MAX_GENERATION) == generation && (int) (data >>> 32) == check;
+    }
+
+    private int bucketOf(long key) {
+        return (int) mix(key) & bucketMask;
+    }
+
+/*******************************************************************************
+//Method:       keyOf
+//Description:  Gets the key of a board: its packed word when it has one, or a
+//              hash of its packed words.
+//Parameters:   board       the board
+//              words       scratch array of at least packedWordCount() longs
+//Returns:      long        the key
+//Calls:        mix
+//              PuzzleBoard.writePacked
+//Globals:      None
+**/
+    static long keyOf(PuzzleBoard board, long[] words) {
+        int count = board.packedWordCount();
+        board.writePacked(words, 0);
+        if (count == 1) {
+            return words[0];
+        }
+        long key = 0;
+        for (int i = 0; i < count; i++) {
+            key = mix(key ^ words[i]) + i;
+        }
+        return key;
+    }
+
+/*******************************************************************************
+//Method:       checkOf
+//Description:  Gets the check bits of a board, a second hash of its packed
+//              words (0 for boards that fit one word, whose keys are exact).
+//Parameters:   board       the board (its words already in the array)
+//              words       the array keyOf filled
+//Returns:      int         the 32 check bits
+//Calls:        mix
+//Globals:      None
+**/
+    static int checkOf(PuzzleBoard board, long[] words) {
+        int count = board.packedWordCount();
+        if (count == 1) {
+            return 0;
+        }
+        long check = 0x5851F42D4C957F2DL;
+        for (int i = 0; i < count; i++) {
+            check = mix(check + words[i]);
+        }
+        return (int) (check >>> 32);
+    }
+
+    private static long mix(long value) {
+        value = (value ^ (value >>> 33)) * 0xFF51AFD7ED558CCDL;
+        value = (value ^ (value >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return value ^ (value >>> 33);
+    }
+}
@@ -0,0 +1,230 @@
+/********************************************************************************
+//*******************************************************************************
+//Class:        WalkingDistanceTable
+//Description:  This is the walking distance table for the tile puzzle solver.
+//              A walking distance state only records, for every row, how many
+//              of its tiles belong to each goal row, plus the row of the blank.
+//              A breadth-first search from the goal state gives the exact
+//              number of vertical moves for every such state. Columns use the
+//              same table because the goal is symmetric under transposition.
+**/
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+public class WalkingDistanceTable {
+
+    // <editor-fold defaultstate="collapsed" desc="Global Variables">
+    private static final int BITS_PER_COUNT = 3;//Each tile count fits in 3 bits
+    private static final AtomicReferenceArray<WalkingDistanceTable> TABLES
+            = new AtomicReferenceArray<>(PuzzleHeuristics.MAX_WALKING_DISTANCE_SIDE + 1);//Built tables by side length
+
+    private final int sideLength;//The side length the table was built for
+    private long[] keys;//Open-addressed state keys (0=empty slot)
+    private byte[] distances;//Walking distance of the state in the same slot
+    private int stateCount;//Number of states stored
+    // </editor-fold>
+
+/*******************************************************************************
+//Method:       WalkingDistanceTable
+//Description:  Builds the table by breadth-first search from the goal.
+//Parameters:   givenSideLength     the side length of the puzzle
+//Returns:      Nothing
+//Calls:        buildTable
+//Globals:      sideLength
+**/
+    private WalkingDistanceTable(int givenSideLength) {
+        sideLength = givenSideLength;
+        keys = new long[1 << 10];
+        distances = new byte[keys.length];
+        buildTable();
+    }
+
+/*******************************************************************************
+//Method:       forSide
+//Description:  Gets the table for a side length, building it on first use.
+//              Lookups after the first do not lock, so parallel searches can
+//              share the table.
+//Parameters:   side                    the side length of the puzzle
+//Returns:      WalkingDistanceTable    the table
+//Calls:        buildForSide
+//Globals:      TABLES
+**/
+    static WalkingDistanceTable forSide(int side) {
+        WalkingDistanceTable table = TABLES.get(side);
+        return table != null ? table : buildForSide(side);
+    }
+
+/*******************************************************************************
+//Method:       buildForSide
+//Description:  Builds and publishes the table for a side length once.
+//Parameters:   side                    the side length of the puzzle
+//Returns:      WalkingDistanceTable    the table
+//Calls:        WalkingDistanceTable
+//Globals:      TABLES
+**/
+    private static synchronized WalkingDistanceTable buildForSide(int side) {
+        if (TABLES.get(side) == null) {
+            TABLES.set(side, new WalkingDistanceTable(side));
+        }
+        return TABLES.get(side);
+    }
+
+/*******************************************************************************
+//Method:       encode
+//Description:  Encodes the row (or column) view of a board as a table key.
+//Parameters:   board       the board to encode
+//              byRows      true=count tiles by goal row in each row;
+//                          false=count tiles by goal column in each column
+//Returns:      long        the state key
+//Calls:        Nothing
+//Globals:      None
+**/
+    static long encode(PuzzleBoard board, boolean byRows) {
+        int side = board.sideLength;
+        long key = 0;
+        for (int row = 0; row < side; row++) {
+            for (int col = 0; col < side; col++) {
+                int tile = board.getTile(row, col);
+                if (tile != 0) {
+                    int line = byRows ? row : col;
+                    int goalLine = byRows ? (tile - 1) / side : (tile - 1) % side;
+                    key += 1L << ((line * side + goalLine) * BITS_PER_COUNT);
+                }
+            }
+        }
+        int blankLine = byRows ? board.getBlankRow() : board.getBlankCol();
+        return key | ((long) blankLine << (side * side * BITS_PER_COUNT));
+    }
+
+/*******************************************************************************
+//Method:       distance
+//Description:  Looks up the walking distance of an encoded state.
+//Parameters:   key         the state key from encode
+//Returns:      int         the walking distance
+//Calls:        findSlot
+//Globals:      distances
+**/
+    int distance(long key) {
+        return distances[findSlot(key)];
+    }
+
+/*******************************************************************************
+//Method:       buildTable
+//Description:  Runs the breadth-first search from the goal state. A vertical
+//              move swaps the blank with a tile of any goal row from the row
+//              above or below.
+//Parameters:   None
+//Returns:      Nothing
+//Calls:        store
+//              findSlot
+//Globals:      sideLength
+**/
+    private void buildTable() {
+        int side = sideLength;
+        int blankShift = side * side * BITS_PER_COUNT;
+        long countMask = (1L << BITS_PER_COUNT) - 1;
+        //The goal has every tile in its own row and the blank in the last row
+        long goalKey = 0;
+        for (int row = 0; row < side; row++) {
+            long count = row == side - 1 ? side - 1 : side;
+            goalKey |= count << ((row * side + row) * BITS_PER_COUNT);
+        }
+        goalKey |= (long) (side - 1) << blankShift;
+        long[] queue = new long[1 << 10];
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = goalKey;
+        store(goalKey, 0);
+        while (head < tail) {
+            long key = queue[head++];
+            int distance = distances[findSlot(key)];
+            int blankRow = (int) (key >>> blankShift);
+            for (int step = -1; step <= 1; step += 2) {
+                int fromRow = blankRow + step;
+                if (fromRow < 0 || fromRow >= side) {
+                    continue;
+                }
+                for (int goalRow = 0; goalRow < side; goalRow++) {
+                    int fromShift = (fromRow * side + goalRow) * BITS_PER_COUNT;
+                    if (((key >>> fromShift) & countMask) == 0) {
+                        continue;
+                    }
+                    //Move one tile of this goal row into the blank's row
+                    int toShift = (blankRow * side + goalRow) * BITS_PER_COUNT;
+                    long nextKey = key - (1L << fromShift) + (1L << toShift);
+                    nextKey = (nextKey & ~(countMask << blankShift)) | ((long) fromRow << blankShift);
+                    if (keys[findSlot(nextKey)] == 0) {
+                        store(nextKey, distance + 1);
+                        if (tail == queue.length) {
+                            queue = Arrays.copyOf(queue, queue.length * 2);
+                        }
+                        queue[tail++] = nextKey;
+                    }
+                }
+            }
+        }
+    }
+
+/*******************************************************************************
+//Method:       store
+//Description:  Stores a new state, growing the table when it is half full.
+//Parameters:   key         the state key
+//              distance    the walking distance of the state
+//Returns:      Nothing
+//Calls:        findSlot
+//Globals:      keys
+//              distances
+//              stateCount
+**/
+    private void store(long key, int distance) {
+        if ((stateCount + 1) * 2 > keys.length) {
+            long[] oldKeys = keys;
+            byte[] oldDistances = distances;
+            keys = new long[oldKeys.length * 2];
+            distances = new byte[keys.length];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != 0) {
+                    int slot = findSlot(oldKeys[i]);
+                    keys[slot] = oldKeys[i];
+                    distances[slot] = oldDistances[i];
+                }
+            }
+        }
+        int slot = findSlot(key);
+        keys[slot] = key;
+        distances[slot] = (byte) distance;
+        stateCount++;
+    }
+
+/*******************************************************************************
+//Method:       findSlot
+//Description:  Finds the slot holding a key, or the empty slot where it would
+//              go, by linear probing.
+//Parameters:   key         the state key
+//Returns:      int         the slot
+//Calls:        Nothing
+//Globals:      keys
+**/
+    private int findSlot(long key) {
+        int mask = keys.length - 1;
+        long mixed = key * 0x9E3779B97F4A7C15L;
+        int slot = (int) (mixed >>> 40) & mask;
+        while (keys[slot] != 0 && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+/*******************************************************************************
+//Method:       size
+//Description:  Gets the number of walking distance states in the table.
+//Parameters:   None
+//Returns:      int         the number of states
+//Calls:        Nothing
+//Globals:      stateCount
+**/
+    int size() {
+        return stateCount;
+    }
+}